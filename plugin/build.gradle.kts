@@ -3,6 +3,7 @@ import com.vanniktech.maven.publish.GradlePublishPlugin
 plugins {
     id("com.gradle.plugin-publish") version "2.1.1"
     jacoco
+    id("me.champeau.jmh") version "0.7.3"
     id("com.vanniktech.maven.publish") version "0.37.0"
 }
 
@@ -22,6 +23,9 @@ dependencies {
     testImplementation(libs.jgit)
     testImplementation(libs.junit.jupiter)
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+    jmhImplementation(libs.jgit)
+    jmhImplementation(gradleApi())
 }
 
 gradlePlugin {
@@ -33,6 +37,12 @@ gradlePlugin {
         displayName = "Automatic semantic versioning plugin"
         description = "Lightweight automatic semantic versioning plugin based on annotated git tags."
     }
+    val autoSemverSettings by plugins.creating {
+        id = "io.github.stellarsunset.auto-semver-settings"
+        implementationClass = "io.github.stellarsunset.semver.AutoSemverSettingsPlugin"
+        displayName = "Automatic semantic versioning settings plugin"
+        description = "Applies the git tag based semantic version to every project of a build, resolving it only once."
+    }
 }
 
 val functionalTestSourceSet = sourceSets.create("functionalTest") {
@@ -47,7 +57,29 @@ val functionalTest by tasks.registering(Test::class) {
     useJUnitPlatform()
 }
 
+val performanceTestSourceSet = sourceSets.create("performanceTest") {
+}
+
+configurations["performanceTestImplementation"].extendsFrom(configurations["testImplementation"])
+configurations["performanceTestRuntimeOnly"].extendsFrom(configurations["testRuntimeOnly"])
+
+val performanceResults = layout.buildDirectory.file("reports/performance/results.csv")
+
+// wall-clock budgets against large generated builds, run on their own (./gradlew performanceTest) rather than by check
+val performanceTest by tasks.registering(Test::class) {
+    description = "Runs the plugin against large generated builds, failing when configuration time budgets are exceeded."
+    group = LifecycleBasePlugin.VERIFICATION_GROUP
+    testClassesDirs = performanceTestSourceSet.output.classesDirs
+    classpath = performanceTestSourceSet.runtimeClasspath
+    useJUnitPlatform()
+    maxParallelForks = 1
+    systemProperty("autoSemver.performance.results", performanceResults.get().asFile.path)
+    outputs.upToDateWhen { false }
+    doFirst { performanceResults.get().asFile.delete() }
+}
+
 gradlePlugin.testSourceSets.add(functionalTestSourceSet)
+gradlePlugin.testSourceSets.add(performanceTestSourceSet)
 
 tasks.test {
     useJUnitPlatform()
@@ -58,6 +90,14 @@ tasks.named<Task>("check") {
     finalizedBy(tasks.jacocoTestReport)
 }
 
+jmh {
+    jmhVersion = libs.versions.jmh
+    // allocation rates alongside throughput, written as JSON so runs can be diffed between commits
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+}
+
 tasks.jacocoTestReport {
     reports {
         xml.required = true
@@ -8,6 +8,7 @@ import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.gradle.testkit.runner.BuildResult;
 import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
 import org.gradle.testkit.runner.UnexpectedBuildFailure;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -17,9 +18,12 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
 
-import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 class AutoSemverPluginFunctionalTest {
 
@@ -30,6 +34,56 @@ class AutoSemverPluginFunctionalTest {
                 "Show Version should fail, not a Git repository.");
     }
 
+    @Test
+    void testLazyModeNeverResolvesUnreadVersion(@TempDir File projectDir) throws IOException {
+        try (Git git = initializeRepositorySafely(projectDir)) {
+            runGradle(projectDir, "help", "-PautoSemver.mode=lazy", "-PautoSemver.report=true");
+
+            String report = Files.readString(new File(projectDir, "build/autoSemver/report.json").toPath());
+            assertAll(
+                    () -> assertTrue(report.contains("\"processes\": 0"), "Processes"),
+                    () -> assertFalse(report.contains("\"cat\": \"resolve\""), "Resolve span")
+            );
+        }
+    }
+
+    @Test
+    void testLazyModeResolvesOnRead(@TempDir File projectDir) {
+        try (Git git = initializeRepositorySafely(projectDir)) {
+            BuildResult result = runGradle(projectDir, "showVersion", "-PautoSemver.mode=lazy");
+            assertTrue(result.getOutput().contains("Project Version: 0.0.1"));
+        }
+    }
+
+    @Test
+    void testAsyncModeResolvesOnRead(@TempDir File projectDir) {
+        try (Git git = initializeRepositorySafely(projectDir)) {
+            BuildResult result = runGradle(projectDir, "showVersion", "-PautoSemver.mode=async");
+            assertTrue(result.getOutput().contains("Project Version: 0.0.1"));
+        }
+    }
+
+    @Test
+    void testAsyncModeChecksWorkTreeOnRead(@TempDir File projectDir) throws IOException {
+        try (Git git = initializeRepositorySafely(projectDir)) {
+            runGradle(projectDir, "help", "-PautoSemver.mode=async", "-PautoSemver.dirty=true", "-PautoSemver.report=true");
+            String report = Files.readString(new File(projectDir, "build/autoSemver/report.json").toPath());
+
+            BuildResult result = runGradle(projectDir, "showVersion", "-PautoSemver.mode=async", "-PautoSemver.dirty=true");
+            assertAll(
+                    () -> assertFalse(report.contains("\"cat\": \"status\""), "Status span: " + report),
+                    () -> assertTrue(result.getOutput().contains("Project Version: 0.0.1"), "Version")
+            );
+        }
+    }
+
+    @Test
+    void testAsyncModeNotAGitDirectory(@TempDir File projectDir) throws IOException {
+        initializeProject(projectDir);
+        assertThrows(AssertionError.class, () -> runGradle(projectDir, "showVersion", "-PautoSemver.mode=async"),
+                "Show Version should fail in async mode as well, not a Git repository.");
+    }
+
     @Test
     void testSetVersion(@TempDir File projectDir) {
         try (Git git = initializeRepositorySafely(projectDir)) {
@@ -49,6 +103,333 @@ class AutoSemverPluginFunctionalTest {
         }
     }
 
+    @Test
+    void testVersionHistory(@TempDir File projectDir) throws Exception {
+        try (Git git = initializeRepositorySafely(projectDir)) {
+            runGradle(projectDir, "release", "-Pminor");
+            commit(git, "Second Commit");
+            commit(git, "Third Commit");
+
+            runGradle(projectDir, "versionHistory", "-Prange=HEAD", "-Pformat=json");
+            String json = Files.readString(new File(projectDir, "build/autoSemver/versions.json").toPath());
+            assertAll(
+                    () -> assertTrue(json.contains("\"version\": \"0.1.0\""), "Tagged"),
+                    () -> assertTrue(json.contains("\"version\": \"0.1.0-alpha1+"), "First after tag"),
+                    () -> assertTrue(json.contains("\"version\": \"0.1.0-alpha2+"), "Second after tag")
+            );
+        }
+    }
+
+    @Test
+    void testConfigurationCacheReused(@TempDir File projectDir) {
+        try (Git git = initializeRepositorySafely(projectDir)) {
+            runGradle(projectDir, "showVersion", "--configuration-cache");
+
+            BuildResult reused = runGradle(projectDir, "showVersion", "--configuration-cache");
+            assertAll(
+                    () -> assertTrue(reused.getOutput().contains("Reusing configuration cache."), "Reused"),
+                    () -> assertTrue(reused.getOutput().contains("Project Version: 0.0.1"), "Version")
+            );
+        }
+    }
+
+    @Test
+    void testConfigurationCacheInvalidatedByRelease(@TempDir File projectDir) {
+        try (Git git = initializeRepositorySafely(projectDir)) {
+            BuildResult release = runGradle(projectDir, "release", "-Pmajor", "--configuration-cache");
+            assertTrue(release.getOutput().contains("release 1.0.0"));
+
+            BuildResult version = runGradle(projectDir, "showVersion", "--configuration-cache");
+            assertTrue(version.getOutput().contains("Project Version: 1.0.0"));
+        }
+    }
+
+    @Test
+    void testSettingsPluginVersionsAllProjects(@TempDir File projectDir) throws IOException {
+        try (Git git = initializeRepositorySafely(projectDir)) {
+            initializeMultiProject(projectDir);
+            BuildResult result = runGradle(projectDir, "showVersion", "--configuration-cache");
+            assertAll(
+                    () -> assertTrue(result.getOutput().contains("Root Version: 0.0.1"), "Root"),
+                    () -> assertTrue(result.getOutput().contains("Project a Version: 0.0.1"), "Project a"),
+                    () -> assertTrue(result.getOutput().contains("Project b Version: 0.0.1"), "Project b")
+            );
+        }
+    }
+
+    @Test
+    void testSettingsPluginReleasesOnlyFromRoot(@TempDir File projectDir) throws IOException {
+        try (Git git = initializeRepositorySafely(projectDir)) {
+            initializeMultiProject(projectDir);
+            assertThrows(AssertionError.class, () -> runGradle(projectDir, ":a:release"),
+                    "Release should only be registered on the root project.");
+
+            runGradle(projectDir, "release", "-Pminor");
+            BuildResult result = runGradle(projectDir, ":b:showVersion");
+            assertTrue(result.getOutput().contains("Project b Version: 0.1.0"));
+        }
+    }
+
+    @Test
+    void testMonorepoVersionsEachProject(@TempDir File projectDir) throws Exception {
+        try (Git git = initializeMonorepo(projectDir)) {
+            writeString(new File(projectDir, "core/Core.java"), "class Core {}");
+            git.add().addFilepattern("core").call();
+            commit(git, "Change core");
+
+            BuildResult result = runGradle(projectDir, "showVersion", "-PautoSemver.monorepo=true");
+            assertAll(
+                    () -> assertTrue(result.getOutput().contains("Root Version: 2.0.0-alpha1+"), "Root"),
+                    () -> assertTrue(result.getOutput().contains("Project core Version: 1.0.0-alpha1+"), "Project core"),
+                    () -> assertTrue(result.getOutput().contains("Project api Version: 0.1.0" + System.lineSeparator()), "Project api")
+            );
+        }
+    }
+
+    @Test
+    void testMonorepoReleasesEachProject(@TempDir File projectDir) throws Exception {
+        try (Git git = initializeMonorepo(projectDir)) {
+            writeString(new File(projectDir, "core/Core.java"), "class Core {}");
+            git.add().addFilepattern("core").call();
+            commit(git, "Change core");
+
+            runGradle(projectDir, ":core:release", "-Pminor", "-PautoSemver.monorepo=true");
+            BuildResult result = runGradle(projectDir, "showVersion", "-PautoSemver.monorepo=true");
+            assertAll(
+                    () -> assertNotNull(git.getRepository().findRef("refs/tags/core/v1.1.0"), "Tag"),
+                    () -> assertTrue(result.getOutput().contains("Project core Version: 1.1.0" + System.lineSeparator()), "Project core"),
+                    () -> assertTrue(result.getOutput().contains("Project api Version: 0.1.0" + System.lineSeparator()), "Project api")
+            );
+        }
+    }
+
+    @Test
+    void testMonorepoReleasesAllChangedProjects(@TempDir File projectDir) throws Exception {
+        try (Git git = initializeMonorepo(projectDir)) {
+            writeString(new File(projectDir, "core/Core.java"), "class Core {}");
+            git.add().addFilepattern("core").call();
+            commit(git, "Change core");
+
+            runGradle(projectDir, ":releaseAll", "-PautoSemver.monorepo=true");
+            BuildResult result = runGradle(projectDir, "showVersion", "-PautoSemver.monorepo=true");
+            assertAll(
+                    () -> assertNotNull(git.getRepository().findRef("refs/tags/v2.0.1"), "Root tag"),
+                    () -> assertNotNull(git.getRepository().findRef("refs/tags/core/v1.0.1"), "Core tag"),
+                    () -> assertNull(git.getRepository().findRef("refs/tags/api/v0.1.1"), "Unchanged api"),
+                    () -> assertTrue(result.getOutput().contains("Project core Version: 1.0.1" + System.lineSeparator()), "Project core")
+            );
+        }
+    }
+
+    @Test
+    void testMonorepoReleasesAllUntaggedProjects(@TempDir File projectDir) throws Exception {
+        try (Git git = initializeMonorepo(projectDir)) {
+            // api was never released while the root and core have no commits since their releases
+            git.tagDelete().setTags("refs/tags/api/v0.1.0").call();
+
+            BuildResult result = runGradle(projectDir, ":releaseAll", "-PautoSemver.monorepo=true");
+            assertAll(
+                    () -> assertNotNull(git.getRepository().findRef("refs/tags/api/v0.0.2"), "Api tag"),
+                    () -> assertNull(git.getRepository().findRef("refs/tags/v2.0.1"), "Unchanged root"),
+                    () -> assertNull(git.getRepository().findRef("refs/tags/core/v1.0.1"), "Unchanged core"),
+                    () -> assertFalse(result.getOutput().contains("No project has changed"), "Released")
+            );
+        }
+    }
+
+    @Test
+    void testMonorepoReleaseAllIsAtomic(@TempDir File projectDir) throws Exception {
+        try (Git git = initializeMonorepo(projectDir)) {
+            // the conflicting tag lives on another branch so it doesn't change the version of core on main
+            git.checkout().setCreateBranch(true).setName("side").call();
+            git.commit().setAuthor("junit", "junit@autosemver.github.com").setMessage("Side").setAllowEmpty(true).call();
+            git.tag().setName("core/v1.0.1").setAnnotated(false).call();
+            git.checkout().setName("main").call();
+
+            writeString(new File(projectDir, "core/Core.java"), "class Core {}");
+            git.add().addFilepattern("core").call();
+            commit(git, "Change core");
+
+            BuildResult result = GradleRunner.create()
+                    .withPluginClasspath()
+                    .withArguments(":releaseAll", "-PautoSemver.monorepo=true")
+                    .withProjectDir(projectDir)
+                    .buildAndFail();
+            assertAll(
+                    () -> assertTrue(result.getOutput().contains("refs/tags/core/v1.0.1"), "Reported"),
+                    () -> assertNull(git.getRepository().findRef("refs/tags/v2.0.1"), "Root not tagged")
+            );
+        }
+    }
+
+    @Test
+    void testShallowCloneDeepened(@TempDir File dir) throws Exception {
+        File origin = new File(dir, "origin");
+        try (Git git = initializeMonorepo(origin)) {
+            for (int i = 0; i < 40; i++) {
+                commit(git, "Commit " + i);
+            }
+        }
+
+        File clone = new File(dir, "clone");
+        Process process = new ProcessBuilder("git", "clone", "--quiet", "--depth", "1",
+                "file://" + origin.getAbsolutePath(), clone.getName()).directory(dir).inheritIO().start();
+        assertEquals(0, process.waitFor(), "Cloned");
+
+        BuildResult result = runGradle(clone, ":showVersion", "-PautoSemver.deepen=origin");
+        assertAll(
+                () -> assertTrue(result.getOutput().contains("Root Version: 2.0.0-alpha40+"), "Version"),
+                () -> assertTrue(new File(clone, ".git/shallow").isFile(), "Still shallow")
+        );
+    }
+
+    @Test
+    void testDirtyWorkTree(@TempDir File projectDir) throws Exception {
+        try (Git git = initializeMonorepo(projectDir)) {
+            BuildResult clean = runGradle(projectDir, ":showVersion", "-PautoSemver.dirty=true", "--configuration-cache");
+            assertTrue(clean.getOutput().contains("Root Version: 2.0.0" + System.lineSeparator()), "Clean");
+
+            writeString(new File(projectDir, ".gitignore"), ".gradle/\nbuild/\n*.log\n");
+            BuildResult dirty = runGradle(projectDir, ":showVersion", "-PautoSemver.dirty=true", "--configuration-cache");
+            assertAll(
+                    () -> assertTrue(dirty.getOutput().contains("Root Version: 2.0.0-alpha0+"), "Dirty"),
+                    () -> assertTrue(dirty.getOutput().contains(".dirty" + System.lineSeparator()), "Dirty suffix")
+            );
+        }
+    }
+
+    @Test
+    void testDirtyWorkTreeCheckedOnce(@TempDir File projectDir) throws Exception {
+        try (Git git = initializeMonorepo(projectDir)) {
+            writeString(new File(projectDir, ".gitignore"), ".gradle/\nbuild/\n*.log\n");
+            runGradle(projectDir, ":showVersion", "-PautoSemver.dirty=true", "-PautoSemver.report=true");
+
+            String report = Files.readString(new File(projectDir, "build/autoSemver/report.json").toPath());
+            assertEquals(1, report.split("\"cat\": \"status\"", -1).length - 1, "Status spans");
+        }
+    }
+
+    @Test
+    void testStableVersion(@TempDir File projectDir) throws Exception {
+        try (Git git = initializeRepositorySafely(projectDir)) {
+            runGradle(projectDir, "release", "-Pminor");
+            commit(git, "Second Commit");
+
+            writeString(new File(projectDir, "build.gradle"), """
+                    plugins {
+                      id('java')
+                      id('maven-publish')
+                      id('io.github.stellarsunset.auto-semver')
+                    }
+                    
+                    publishing {
+                        publications {
+                            maven(MavenPublication) {
+                                from components.java
+                            }
+                        }
+                    }
+                    
+                    tasks.register("showVersion") {
+                        inputs.property("version", project.version)
+                        doLast {
+                            println("Project Version: ${inputs.properties["version"]}")
+                        }
+                    }
+                    """);
+            BuildResult result = runGradle(projectDir, "showVersion", "jar", "generatePomFileForMavenPublication",
+                    "-PautoSemver.stable=true");
+
+            File jar = new File(projectDir, "build/libs/" + projectDir.getName() + "-0.1.0.jar");
+            String manifest;
+            try (JarFile file = new JarFile(jar)) {
+                manifest = file.getManifest().getMainAttributes().getValue("Implementation-Version");
+            }
+            String pom = Files.readString(new File(projectDir, "build/publications/maven/pom-default.xml").toPath());
+            assertAll(
+                    () -> assertTrue(result.getOutput().contains("Project Version: 0.1.0" + System.lineSeparator()), "Stable"),
+                    () -> assertTrue(pom.contains("<version>0.1.0-alpha1+"), "Publication: " + pom),
+                    () -> assertTrue(manifest.startsWith("0.1.0-alpha1+"), "Manifest: " + manifest)
+            );
+        }
+    }
+
+    @Test
+    void testStableLazyVersionPublished(@TempDir File projectDir) throws Exception {
+        try (Git git = initializeRepositorySafely(projectDir)) {
+            runGradle(projectDir, "release", "-Pminor");
+            commit(git, "Second Commit");
+
+            writeString(new File(projectDir, "build.gradle"), """
+                    plugins {
+                      id('java')
+                      id('maven-publish')
+                      id('io.github.stellarsunset.auto-semver')
+                    }
+                    
+                    publishing {
+                        publications {
+                            maven(MavenPublication) {
+                                from components.java
+                            }
+                        }
+                    }
+                    """);
+            runGradle(projectDir, "help", "-PautoSemver.stable=true", "-PautoSemver.mode=lazy", "-PautoSemver.report=true");
+            String report = Files.readString(new File(projectDir, "build/autoSemver/report.json").toPath());
+
+            runGradle(projectDir, "generatePomFileForMavenPublication", "-PautoSemver.stable=true", "-PautoSemver.mode=lazy");
+            String pom = Files.readString(new File(projectDir, "build/publications/maven/pom-default.xml").toPath());
+            assertAll(
+                    () -> assertFalse(report.contains("\"cat\": \"resolve\""), "Unresolved: " + report),
+                    () -> assertTrue(pom.contains("<version>0.1.0-alpha1+"), "Publication: " + pom)
+            );
+        }
+    }
+
+    @Test
+    void testGenerateVersion(@TempDir File projectDir) throws Exception {
+        try (Git git = initializeRepositorySafely(projectDir)) {
+            writeString(new File(projectDir, "build.gradle"), """
+                    plugins {
+                      id('java')
+                      id('io.github.stellarsunset.auto-semver')
+                    }
+                    
+                    tasks.named("generateVersion") {
+                        className = "com.example.BuildVersion"
+                    }
+                    
+                    sourceSets.main {
+                        java.srcDir(tasks.named("generateVersion").flatMap { it.sourceDirectory })
+                        resources.srcDir(tasks.named("generateVersion").flatMap { it.resourceDirectory })
+                    }
+                    """);
+            BuildResult first = runGradle(projectDir, "classes");
+            BuildResult second = runGradle(projectDir, "classes");
+            assertAll(
+                    () -> assertEquals(TaskOutcome.SUCCESS, first.task(":generateVersion").getOutcome(), "Generated"),
+                    () -> assertEquals(TaskOutcome.UP_TO_DATE, second.task(":generateVersion").getOutcome(), "Up-to-date"),
+                    () -> assertTrue(new File(projectDir, "build/classes/java/main/com/example/BuildVersion.class").isFile(), "Compiled"),
+                    () -> assertTrue(new File(projectDir, "build/resources/main/com/example/version.properties").isFile(), "Resource")
+            );
+        }
+    }
+
+    @Test
+    void testReport(@TempDir File projectDir) throws Exception {
+        try (Git git = initializeRepositorySafely(projectDir)) {
+            BuildResult result = runGradle(projectDir, "showVersion", "-PautoSemver.report=true", "--info");
+
+            String report = Files.readString(new File(projectDir, "build/autoSemver/report.json").toPath());
+            assertAll(
+                    () -> assertTrue(result.getOutput().contains("auto-semver resolved versions in"), "Logged"),
+                    () -> assertTrue(report.contains("\"cat\": \"resolve\""), "Resolve span"),
+                    () -> assertTrue(report.contains("\"cache_misses\": 1"), "Cache miss")
+            );
+        }
+    }
+
     private BuildResult runGradle(File projectDir, String... arguments) {
         try {
             GradleRunner runner = GradleRunner.create();
@@ -95,6 +476,77 @@ class AutoSemverPluginFunctionalTest {
         writeString(settingsFile, "");
     }
 
+    /**
+     * Replace the single project build with one applying the settings plugin to a root and two subprojects, all of which
+     * also apply the project plugin.
+     */
+    private void initializeMultiProject(File projectDir) throws IOException {
+        initializeMultiProject(projectDir, "a", "b");
+    }
+
+    private void initializeMultiProject(File projectDir, String... subprojects) throws IOException {
+        writeString(new File(projectDir, "settings.gradle"), """
+                plugins {
+                  id('io.github.stellarsunset.auto-semver-settings')
+                }
+                
+                include(%s)
+                """.formatted(Arrays.stream(subprojects).map(name -> "'" + name + "'").collect(Collectors.joining(", "))));
+
+        String showVersion = """
+                plugins {
+                  id('io.github.stellarsunset.auto-semver')
+                }
+                
+                tasks.register("showVersion") {
+                    inputs.property("version", project.version)
+                    doLast {
+                        println("%s Version: ${inputs.properties["version"]}")
+                    }
+                }
+                """;
+        writeString(new File(projectDir, "build.gradle"), String.format(showVersion, "Root"));
+        for (String name : subprojects) {
+            File dir = new File(projectDir, name);
+            assertTrue(dir.mkdirs());
+            writeString(new File(dir, "build.gradle"), String.format(showVersion, "Project " + name));
+        }
+    }
+
+    /**
+     * Initialize a repository with a regular work tree holding a root and two subprojects, {@code core} and {@code api},
+     * each tagged with its own prefixed release tag on the initial commit.
+     */
+    private Git initializeMonorepo(File projectDir) throws Exception {
+        Git main = Git.init()
+                .setDirectory(projectDir)
+                .setInitialBranch("main")
+                .call();
+
+        initializeMultiProject(projectDir, "core", "api");
+        writeString(new File(projectDir, ".gitignore"), ".gradle/\nbuild/\n");
+
+        StoredConfig config = main.getRepository().getConfig();
+        config.setBoolean("commit", null, "gpgsign", false);
+        config.setBoolean("tag", null, "gpgsign", false);
+        config.unset("gpg", null, "format");
+        config.save();
+
+        main.add().addFilepattern(".").call();
+        commit(main, "Initial Commit");
+        for (String tag : new String[]{"v2.0.0", "core/v1.0.0", "api/v0.1.0"}) {
+            main.tag().setName(tag).setAnnotated(true).setMessage(tag).call();
+        }
+        return main;
+    }
+
+    private static void commit(Git git, String message) throws Exception {
+        git.commit()
+                .setAuthor("junit", "junit@autosemver.github.com")
+                .setMessage(message)
+                .call();
+    }
+
     /**
      * Initialize and commit the initial configuration for our project as a git repository in the directory.
      */
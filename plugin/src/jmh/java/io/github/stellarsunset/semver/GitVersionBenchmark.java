@@ -0,0 +1,75 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.Action;
+import org.gradle.process.ExecOperations;
+import org.gradle.process.ExecResult;
+import org.gradle.process.ExecSpec;
+import org.gradle.process.JavaExecSpec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link Git#version()} against linear repositories of increasing depth, where the only tag is on the root
+ * commit so every resolution walks the whole history.
+ *
+ * <p>{@code git describe} through the CLI is measured alongside as the baseline the in-process reader replaces, both
+ * with and without a {@code commit-graph} file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GitVersionBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int commits;
+
+    @Param({"false", "true"})
+    public boolean commitGraph;
+
+    private File repository;
+    private Git git;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        File root = new File(System.getProperty("java.io.tmpdir"), "auto-semver-jmh");
+        Files.createDirectories(root.toPath());
+        repository = SyntheticRepository.linear(root, commits, commitGraph);
+        // the in-process reader handles these repositories, any attempt to fork git is a regression worth failing on
+        git = new Git(repository, new NoExecOperations(), null);
+    }
+
+    @Benchmark
+    public Version version() {
+        return git.version();
+    }
+
+    @Benchmark
+    public String gitDescribeCli() throws Exception {
+        Process process = new ProcessBuilder("git", "describe")
+                .directory(repository)
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes());
+        process.waitFor();
+        return output;
+    }
+
+    private static final class NoExecOperations implements ExecOperations {
+
+        @Override
+        public ExecResult exec(Action<? super ExecSpec> action) {
+            throw new UnsupportedOperationException("Benchmarks should never fork git.");
+        }
+
+        @Override
+        public ExecResult javaexec(Action<? super JavaExecSpec> action) {
+            throw new UnsupportedOperationException("Benchmarks should never fork java.");
+        }
+    }
+}
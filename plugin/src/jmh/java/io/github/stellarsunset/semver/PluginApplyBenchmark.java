@@ -0,0 +1,48 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-project cost of applying the plugin, each invocation gets a fresh {@link ProjectBuilder} project (created outside
+ * the measured region) in a 1k commit repository.
+ *
+ * <p>Every {@link ProjectBuilder} project is its own build, so after the first invocation this measures the steady state
+ * of a warm on-disk {@link VersionCache} rather than the history walk, which {@link GitVersionBenchmark} covers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PluginApplyBenchmark {
+
+    private File repository;
+    private Project project;
+
+    @Setup(Level.Trial)
+    public void setupRepository() throws Exception {
+        File root = new File(System.getProperty("java.io.tmpdir"), "auto-semver-jmh");
+        Files.createDirectories(root.toPath());
+        repository = SyntheticRepository.linear(root, 1000, false);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupProject() {
+        project = ProjectBuilder.builder()
+                .withProjectDir(repository)
+                .build();
+    }
+
+    @Benchmark
+    public Object apply() {
+        project.getPlugins().apply(AutoSemverPlugin.class);
+        return project.getVersion();
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.stellarsunset.semver;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse and serialize throughput of the built-in {@link Version.Serde} formats, run with the {@code gc} profiler to get
+ * the allocation rate per operation alongside.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerdeBenchmark {
+
+    private static final Version.Serde JAVA = Version.Serde.java();
+
+    private static final Version.Serde GIT = Version.Serde.gitPorcelain();
+
+    @Param({"release", "preRelease", "dirty"})
+    public String shape;
+
+    private Version version;
+    private String javaString;
+    private String gitString;
+
+    @Setup
+    public void setup() {
+        Version.Release release = Version.release(12, 4, 107);
+        version = switch (shape) {
+            case "release" -> release;
+            case "preRelease" -> Version.preRelease(release, 42, "a1b2c3d");
+            case "dirty" -> Version.dirty(Version.preRelease(release, 42, "a1b2c3d"));
+            default -> throw new IllegalArgumentException(shape);
+        };
+        javaString = JAVA.serialize(version);
+        gitString = GIT.serialize(version);
+    }
+
+    @Benchmark
+    public Version parseJava() {
+        return JAVA.parse(javaString);
+    }
+
+    @Benchmark
+    public Version parseGitPorcelain() {
+        return GIT.parse(gitString);
+    }
+
+    @Benchmark
+    public Version parseGitPorcelainRegex() {
+        return Version.Serde.GitPorcelain.REGEX_PARSER.parse(gitString);
+    }
+
+    @Benchmark
+    public String serializeJava() {
+        return JAVA.serialize(version);
+    }
+
+    @Benchmark
+    public String serializeGitPorcelain() {
+        return GIT.serialize(version);
+    }
+}
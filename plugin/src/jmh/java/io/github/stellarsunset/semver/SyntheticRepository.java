@@ -0,0 +1,103 @@
+package io.github.stellarsunset.semver;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.internal.storage.file.PackInserter;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TagBuilder;
+import org.eclipse.jgit.lib.TreeFormatter;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+/**
+ * Generates linear repositories of a given number of commits with JGit, writing everything straight into a single pack
+ * so even the million commit case takes seconds rather than minutes.
+ *
+ * <p>The only annotated tag ({@code v1.0.0}) sits on the root commit, making every describe walk the full history.
+ * Repositories are generated once per size and re-used between benchmark runs.
+ */
+final class SyntheticRepository {
+
+    private SyntheticRepository() {
+    }
+
+    /**
+     * Returns a linear repository with the given number of commits, optionally with a {@code commit-graph} written by
+     * the git CLI.
+     */
+    static File linear(File root, int commits, boolean commitGraph) throws Exception {
+        File dir = new File(root, String.format(commitGraph ? "linear-%s-graph" : "linear-%s", commits));
+        if (new File(dir, ".git/refs/heads/main").isFile()) {
+            return dir;
+        }
+        generate(dir, commits);
+        if (commitGraph) {
+            Process process = new ProcessBuilder("git", "commit-graph", "write", "--reachable")
+                    .directory(dir)
+                    .inheritIO()
+                    .start();
+            if (process.waitFor() != 0) {
+                throw new IOException(String.format("Unable to write the commit-graph of %s.", dir));
+            }
+        }
+        return dir;
+    }
+
+    private static void generate(File dir, int commits) throws Exception {
+
+        try (Git git = Git.init().setDirectory(dir).setInitialBranch("main").call()) {
+            Repository repository = git.getRepository();
+            try (PackInserter inserter = ((ObjectDirectory) repository.getObjectDatabase()).newPackInserter()) {
+                ObjectId tree = inserter.insert(new TreeFormatter());
+
+                ObjectId parent = null;
+                ObjectId first = null;
+                long time = 1_500_000_000L;
+                for (int i = 0; i < commits; i++) {
+                    PersonIdent ident = new PersonIdent("bench", "bench@autosemver.github.com",
+                            Instant.ofEpochSecond(time + i), ZoneOffset.UTC);
+
+                    CommitBuilder commit = new CommitBuilder();
+                    commit.setTreeId(tree);
+                    if (parent != null) {
+                        commit.setParentId(parent);
+                    }
+                    commit.setAuthor(ident);
+                    commit.setCommitter(ident);
+                    commit.setMessage(String.format("Commit %s", i));
+                    parent = inserter.insert(commit);
+                    if (first == null) {
+                        first = parent;
+                    }
+                }
+
+                TagBuilder tag = new TagBuilder();
+                tag.setObjectId(first, Constants.OBJ_COMMIT);
+                tag.setTag("v1.0.0");
+                tag.setTagger(new PersonIdent("bench", "bench@autosemver.github.com",
+                        Instant.ofEpochSecond(time), ZoneOffset.UTC));
+                tag.setMessage("Release 1.0.0");
+                ObjectId tagId = inserter.insert(tag);
+                inserter.flush();
+
+                update(repository, "refs/tags/v1.0.0", tagId);
+                update(repository, "refs/heads/main", parent);
+            }
+        }
+    }
+
+    private static void update(Repository repository, String ref, ObjectId id) throws IOException {
+        RefUpdate update = repository.updateRef(ref);
+        update.setNewObjectId(id);
+        update.setForceUpdate(true);
+        update.update();
+    }
+}
@@ -0,0 +1,24 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.provider.Property;
+
+/**
+ * Project extension registered as {@code autoSemver}, exposing the resolved version lazily for wiring into other tasks
+ * and plugins.
+ */
+public abstract class AutoSemverExtension {
+
+    static final String NAME = "autoSemver";
+
+    /**
+     * The full project version in the {@link Version.Serde#java()} format, the same value {@code project.version} is set
+     * to unless {@code autoSemver.stable} is enabled.
+     */
+    public abstract Property<String> getVersion();
+
+    /**
+     * The release part of the project version (e.g. {@code 1.2.0} for {@code 1.2.0-alpha3+abcdef1}), which only changes
+     * with the tags and so makes for stable task inputs and build cache keys.
+     */
+    public abstract Property<String> getReleaseVersion();
+}
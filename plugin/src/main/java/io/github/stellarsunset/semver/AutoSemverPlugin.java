@@ -5,19 +5,24 @@ package io.github.stellarsunset.semver;
 
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.file.ProjectLayout;
 import org.gradle.api.problems.ProblemReporter;
 import org.gradle.api.problems.Problems;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
 import org.gradle.process.ExecOperations;
 
 import javax.inject.Inject;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 
 import static java.util.Objects.requireNonNull;
 
 @SuppressWarnings("UnstableApiUsage")
 public class AutoSemverPlugin implements Plugin<Project> {
 
-    private static final Version.Serde JAVA = Version.Serde.java();
-
     private final ExecOperations execOperations;
     private final ProblemReporter problemReporter;
 
@@ -29,14 +34,117 @@ public class AutoSemverPlugin implements Plugin<Project> {
 
     @Override
     public void apply(Project project) {
-        var tasks = project.getTasks();
+        // projects of a build applying the settings plugin have already been configured by it
+        if (project.getExtensions().findByName(AutoSemverExtension.NAME) != null) {
+            return;
+        }
+
+        PluginOptions options = PluginOptions.from(project.getProviders());
+        Git git = new Git(project.getProjectDir(), execOperations, problemReporter, options.timeout());
+        Provider<VersionService> service = VersionService.register(
+                project.getGradle(), project.getRootDir(), options);
+
+        ProjectVersion version;
+        if (options.monorepo()) {
+            version = ProjectVersion.resolve(git, project, service);
+        } else {
+            File cacheDir = ProjectVersion.projectCacheDir(
+                    project.getGradle().getStartParameter().getProjectCacheDir(), project.getRootDir());
+            version = ProjectVersion.resolve(git, cacheDir, service, project.getProviders());
+        }
 
-        Git git = new Git(project.getProjectDir(), execOperations, problemReporter);
+        version.applyTo(project);
+        registerRelease(project, version);
+        registerGenerateVersion(project, version);
+        if (version.tagPrefix().isEmpty()) {
+            registerVersionHistory(project);
+        }
+        if (options.monorepo() && project.getParent() == null) {
+            registerReleaseAll(project, git);
+        }
+    }
+
+    /**
+     * Registers the {@code release} task tagging the repository of the given project.
+     */
+    static void registerRelease(Project project, ProjectVersion version) {
+        ProviderFactory providers = project.getProviders();
+        project.getTasks().register("release", ReleaseTask.class, task -> {
+            task.getProjectDirectory().set(project.getProjectDir());
+            task.getCommandTimeout().set(PluginOptions.from(providers).timeout());
+            task.getVersion().set(version.text());
+            task.getTagPrefix().set(version.tagPrefix());
+            task.getIncrement().set(increment(providers));
+            task.getMessage().set(providers.gradleProperty("message"));
+        });
+    }
 
-        Version version = git.version();
-        project.setVersion(JAVA.serialize(version));
+    /**
+     * Registers the {@code releaseAll} task tagging every scope of the monorepo of the given root project at once, or
+     * only those of the projects listed on the command line via {@code -Pprojects} (comma separated paths).
+     */
+    static void registerReleaseAll(Project project, Git git) {
+        ProviderFactory providers = project.getProviders();
+        List<Project> projects = List.copyOf(project.getAllprojects());
+        List<Git.Scope> scopes = ProjectVersion.scopes(git, projects.stream().map(Project::getProjectDir).toList());
+        project.getTasks().register("releaseAll", ReleaseAllTask.class, task -> {
+            task.getProjectDirectory().set(project.getProjectDir());
+            task.getCommandTimeout().set(PluginOptions.from(providers).timeout());
+            for (int i = 0; i < projects.size(); i++) {
+                task.getScopes().put(projects.get(i).getPath(), scopes.get(i).path());
+            }
+            task.getProjects().set(providers.gradleProperty("projects")
+                    .map(value -> Arrays.stream(value.split(",")).map(String::trim).filter(p -> !p.isEmpty()).toList())
+                    .orElse(List.of()));
+            task.getIncrement().set(increment(providers));
+            task.getMessage().set(providers.gradleProperty("message"));
+        });
+    }
+
+    /**
+     * Registers the {@code generateVersion} task writing the version of the given project as a Java class and properties
+     * resource under {@code build/generated}, for the build to add to whichever source set needs it.
+     */
+    static void registerGenerateVersion(Project project, ProjectVersion version) {
+        ProjectLayout layout = project.getLayout();
+        project.getTasks().register("generateVersion", GenerateVersionTask.class, task -> {
+            task.getVersion().set(version.text());
+            task.getClassName().convention("autosemver.BuildVersion");
+            task.getSourceDirectory().convention(layout.getBuildDirectory().dir("generated/sources/autoSemver/java"));
+            task.getResourceDirectory().convention(layout.getBuildDirectory().dir("generated/resources/autoSemver"));
+        });
+    }
+
+    /**
+     * Registers the {@code versionHistory} task writing the versions of past commits of the repository of the given
+     * project, configured on the command line via {@code -Pcommits} (comma separated), {@code -Prange} and
+     * {@code -Pformat} ({@code csv}, the default, or {@code json}).
+     */
+    static void registerVersionHistory(Project project) {
+        ProviderFactory providers = project.getProviders();
+        Provider<VersionHistoryTask.Format> format = providers.gradleProperty("format")
+                .map(value -> VersionHistoryTask.Format.valueOf(value.trim().toUpperCase(Locale.ROOT)))
+                .orElse(VersionHistoryTask.Format.CSV);
+        project.getTasks().register("versionHistory", VersionHistoryTask.class, task -> {
+            task.getProjectDirectory().set(project.getProjectDir());
+            task.getCommandTimeout().set(PluginOptions.from(providers).timeout());
+            task.getCommits().set(providers.gradleProperty("commits")
+                    .map(value -> Arrays.stream(value.split(",")).map(String::trim).filter(c -> !c.isEmpty()).toList())
+                    .orElse(List.of()));
+            task.getRange().set(providers.gradleProperty("range"));
+            task.getFormat().set(format);
+            task.getOutputFile().set(project.getLayout().getBuildDirectory().file(
+                    format.map(f -> "autoSemver/versions." + f.name().toLowerCase(Locale.ROOT))));
+        });
+    }
 
-        tasks.register("release", ReleaseTask.class, git)
-                .configure(task -> task.setVersion(version));
+    /**
+     * Returns the release increment requested on the command line via {@code -Pmajor}, {@code -Pminor} or
+     * {@code -Ppatch} (the default).
+     */
+    private static Provider<ReleaseTask.Increment> increment(ProviderFactory providers) {
+        return providers.gradleProperty("major").map(_ -> ReleaseTask.Increment.MAJOR)
+                .orElse(providers.gradleProperty("minor").map(_ -> ReleaseTask.Increment.MINOR))
+                .orElse(ReleaseTask.Increment.PATCH);
     }
 }
@@ -0,0 +1,73 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.Plugin;
+import org.gradle.api.initialization.Settings;
+import org.gradle.api.problems.ProblemReporter;
+import org.gradle.api.problems.Problems;
+import org.gradle.api.provider.Provider;
+import org.gradle.process.ExecOperations;
+
+import javax.inject.Inject;
+import java.io.File;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Settings plugin variant of {@link AutoSemverPlugin}, resolving the version once for the whole build and applying it
+ * to every project as it's configured.
+ *
+ * <p>Every project gets the {@code project.version}, {@code autoSemver} extension and {@code generateVersion} task the
+ * project plugin would have set up, while the {@code release} and {@code versionHistory} tasks are only registered on
+ * the root project (in a monorepo every project gets a {@code release} task of its own, and the root project a
+ * {@code releaseAll} task releasing them together).
+ */
+@SuppressWarnings("UnstableApiUsage")
+public class AutoSemverSettingsPlugin implements Plugin<Settings> {
+
+    private final ExecOperations execOperations;
+    private final ProblemReporter problemReporter;
+
+    @Inject
+    public AutoSemverSettingsPlugin(ExecOperations execOperations, Problems problems) {
+        this.execOperations = requireNonNull(execOperations);
+        this.problemReporter = requireNonNull(problems).getReporter();
+    }
+
+    @Override
+    public void apply(Settings settings) {
+        PluginOptions options = PluginOptions.from(settings.getProviders());
+        Git git = new Git(settings.getRootDir(), execOperations, problemReporter, options.timeout());
+        Provider<VersionService> service = VersionService.register(
+                settings.getGradle(), settings.getRootDir(), options);
+
+        // projects aren't known until the settings script has run, so each one's scope is only resolved as it's created
+        if (options.monorepo()) {
+            settings.getGradle().beforeProject(project -> {
+                ProjectVersion version = ProjectVersion.resolve(git, project, service);
+                version.applyTo(project);
+                AutoSemverPlugin.registerRelease(project, version);
+                AutoSemverPlugin.registerGenerateVersion(project, version);
+                if (version.tagPrefix().isEmpty()) {
+                    AutoSemverPlugin.registerVersionHistory(project);
+                }
+                if (project.getParent() == null) {
+                    AutoSemverPlugin.registerReleaseAll(project, git);
+                }
+            });
+            return;
+        }
+
+        File cacheDir = ProjectVersion.projectCacheDir(
+                settings.getStartParameter().getProjectCacheDir(), settings.getRootDir());
+        ProjectVersion version = ProjectVersion.resolve(git, cacheDir, service, settings.getProviders());
+
+        settings.getGradle().beforeProject(project -> {
+            version.applyTo(project);
+            AutoSemverPlugin.registerGenerateVersion(project, version);
+            if (project.getParent() == null) {
+                AutoSemverPlugin.registerRelease(project, version);
+                AutoSemverPlugin.registerVersionHistory(project);
+            }
+        });
+    }
+}
@@ -0,0 +1,319 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.BuildCancelledException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link ObjectDatabase} backed by a long-lived {@code git cat-file --batch} co-process, used for objects the in-process
+ * reader can't find itself (e.g. ones living in an alternate object store).
+ *
+ * <p>Only objects missing from the object files go through the process, the in-process reader still resolves and peels
+ * refs and walks history itself. The process is started lazily on first request, so repositories without alternates
+ * never start one, and restarted if it dies. It stops once closed, either with the {@link GitReader} that opened it or
+ * with the {@link Pool} sharing it between the readers of a build.
+ *
+ * <p>Responses are read on a helper virtual thread the caller waits on for at most the timeout, a request still
+ * unanswered by then kills the process and fails with a {@link TimedOutException}, the same way a {@link GitProcess}
+ * running past its timeout is stopped.
+ */
+final class CatFile implements ObjectDatabase, Closeable {
+
+    private static final Logger LOGGER = Logging.getLogger(CatFile.class);
+
+    private final File gitDir;
+    private final Duration timeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Process process;
+    private OutputStream requests;
+    private InputStream responses;
+
+    private CatFile(File gitDir, Duration timeout) {
+        this.gitDir = gitDir;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns a new co-process handle for the given git directory, owned (and eventually closed) by the caller, whose
+     * requests each fail after the given timeout.
+     */
+    static CatFile of(File gitDir, Duration timeout) {
+        return new CatFile(gitDir.getAbsoluteFile(), timeout);
+    }
+
+    /**
+     * The co-processes of a single owner, e.g. the {@link VersionService} of a build, one per git directory and all
+     * stopped together when the owner closes the pool.
+     */
+    static final class Pool implements Closeable {
+
+        private final ConcurrentMap<File, CatFile> processes = new ConcurrentHashMap<>();
+
+        private final Duration timeout;
+
+        /**
+         * Creates an empty pool whose co-processes fail any request running past the given timeout.
+         */
+        Pool(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        /**
+         * Returns the pooled co-process handle for the given git directory, which the pool keeps ownership of.
+         */
+        CatFile of(File gitDir) {
+            return processes.computeIfAbsent(gitDir.getAbsoluteFile(), dir -> new CatFile(dir, timeout));
+        }
+
+        @Override
+        public void close() {
+            processes.values().forEach(CatFile::close);
+            processes.clear();
+        }
+    }
+
+    /**
+     * Thrown when the co-process doesn't answer a request within its timeout, the process is killed by then.
+     */
+    static final class TimedOutException extends IOException {
+
+        private final String commandLine;
+
+        TimedOutException(String commandLine, Duration timeout, TimeoutException cause) {
+            super(String.format("'%s' didn't answer within %s.", commandLine, timeout), cause);
+            this.commandLine = commandLine;
+        }
+
+        String commandLine() {
+            return commandLine;
+        }
+
+        @Override
+        public synchronized TimeoutException getCause() {
+            return (TimeoutException) super.getCause();
+        }
+    }
+
+    @Override
+    public RawObject read(String id) throws IOException {
+        return readAll(List.of(id)).getFirst();
+    }
+
+    /**
+     * Reads all the requested objects, writing every request to the co-process before reading the responses back so
+     * the round-trips overlap instead of adding up.
+     *
+     * @throws MissingObjectException if any of the objects doesn't exist
+     * @throws TimedOutException if the co-process doesn't answer within the timeout
+     * @throws BuildCancelledException if the calling thread is interrupted while waiting on the co-process
+     */
+    @Override
+    public List<RawObject> readAll(List<String> ids) throws IOException {
+        lock.lock();
+        try {
+            return request(ids);
+        } catch (MissingObjectException | TimedOutException e) {
+            throw e;
+        } catch (IOException e) {
+            // most likely the process died (or was killed) since the last request, give it exactly one more chance
+            LOGGER.debug("Restarting git cat-file for {}: {}", gitDir, e.getMessage());
+            stop();
+            return request(ids);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the co-process, a subsequent request starts a new one.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            stop();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<RawObject> request(List<String> ids) throws IOException {
+        start();
+        FutureTask<List<RawObject>> response = new FutureTask<>(() -> respond(ids));
+        Thread.ofVirtual().name("auto-semver-cat-file").start(response);
+        try {
+            return response.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            // killing the process ends the helper's read, which then fails on its own and is left behind
+            kill();
+            throw new TimedOutException(String.join(" ", commandLine()), timeout, e);
+        } catch (InterruptedException e) {
+            kill();
+            Thread.currentThread().interrupt();
+            throw new BuildCancelledException("Interrupted while waiting on git cat-file for " + gitDir + ".", e);
+        }
+    }
+
+    private List<RawObject> respond(List<String> ids) throws IOException {
+        Process process = this.process;
+        InputStream responses = this.responses;
+
+        OutputStream out = requests;
+        Runnable write = () -> {
+            try {
+                for (String id : ids) {
+                    out.write(id.getBytes(StandardCharsets.US_ASCII));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                // the process went away, which the reader notices and reports on its own
+            }
+        };
+
+        // a separate writer keeps larger batches from deadlocking on full pipe buffers in either direction
+        Thread writer = ids.size() > 1 ? Thread.ofVirtual().name("auto-semver-cat-file").start(write) : null;
+        if (writer == null) {
+            write.run();
+        }
+
+        List<RawObject> objects = new ArrayList<>(ids.size());
+        MissingObjectException missing = null;
+        try {
+            for (String id : ids) {
+                String[] header = readLine(responses).split(" ");
+                if (header.length == 2 && header[1].equals("missing")) {
+                    missing = missing == null ? new MissingObjectException(id) : missing;
+                    objects.add(null);
+                    continue;
+                }
+                if (header.length != 3) {
+                    throw new IOException(String.format("Unexpected git cat-file response for %s: %s", id, String.join(" ", header)));
+                }
+                byte[] data = responses.readNBytes(Integer.parseInt(header[2]));
+                if (data.length != Integer.parseInt(header[2]) || responses.read() != '\n') {
+                    throw new EOFException(String.format("Truncated git cat-file response for %s.", id));
+                }
+                objects.add(new RawObject(Type.fromName(header[1]), data));
+            }
+        } catch (IOException | RuntimeException e) {
+            // the responses can't be re-synchronized with the requests, and the writer may be blocked on a full pipe
+            process.destroyForcibly();
+            throw e;
+        } finally {
+            join(writer);
+        }
+
+        if (missing != null) {
+            throw missing;
+        }
+        return objects;
+    }
+
+    private void start() throws IOException {
+        if (process != null && process.isAlive()) {
+            return;
+        }
+        stop();
+        Metrics.count(Metrics.Counter.PROCESSES);
+        process = new ProcessBuilder(commandLine())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        requests = new BufferedOutputStream(process.getOutputStream());
+        responses = new BufferedInputStream(process.getInputStream());
+    }
+
+    private List<String> commandLine() {
+        return List.of("git", "--git-dir=" + gitDir.getAbsolutePath(), "cat-file", "--batch");
+    }
+
+    private void stop() {
+        if (process == null) {
+            return;
+        }
+        try {
+            // closing stdin is how cat-file is asked to exit, only forcibly kill it if it doesn't
+            requests.close();
+            if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (IOException e) {
+            process.destroyForcibly();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        } finally {
+            process = null;
+            requests = null;
+            responses = null;
+        }
+    }
+
+    private void kill() {
+        if (process == null) {
+            return;
+        }
+        process.destroyForcibly();
+        process = null;
+        requests = null;
+        responses = null;
+    }
+
+    private String readLine(InputStream responses) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int c;
+        while ((c = responses.read()) != '\n') {
+            if (c < 0) {
+                throw new EOFException(String.format("git cat-file for %s exited unexpectedly.", gitDir));
+            }
+            line.write(c);
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static void join(Thread writer) throws IOException {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting on git cat-file.", e);
+        }
+    }
+}
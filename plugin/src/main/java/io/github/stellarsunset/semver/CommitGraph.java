@@ -0,0 +1,233 @@
+package io.github.stellarsunset.semver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * {@link ObjectDatabase} answering commit lookups out of git's {@code commit-graph} file (or chain of split graph
+ * files), delegating everything else, including commits missing from the graph, to the underlying object database.
+ *
+ * <p>The graph stores each commit's parents, committer time and generation in a fixed-width, memory-mapped record, so
+ * walking history through it never inflates a single object. See
+ * <a href="https://git-scm.com/docs/gitformat-commit-graph">gitformat-commit-graph</a>.
+ */
+final class CommitGraph implements ObjectDatabase {
+
+    private static final int SIGNATURE = 0x43475048; // "CGPH"
+
+    private static final int OID_FANOUT = 0x4f494446; // "OIDF"
+    private static final int OID_LOOKUP = 0x4f49444c; // "OIDL"
+    private static final int COMMIT_DATA = 0x43444154; // "CDAT"
+    private static final int EXTRA_EDGES = 0x45444745; // "EDGE"
+
+    private static final int HASH_LENGTH = 20;
+    private static final int DATA_WIDTH = HASH_LENGTH + 16;
+
+    private static final int PARENT_NONE = 0x70000000;
+    private static final int EXTRA_EDGES_NEEDED = 0x80000000;
+    private static final int LAST_EDGE = 0x80000000;
+
+    private final List<Layer> layers;
+    private final ObjectDatabase objects;
+
+    private CommitGraph(List<Layer> layers, ObjectDatabase objects) {
+        this.layers = layers;
+        this.objects = objects;
+    }
+
+    /**
+     * Layers the commit-graph of the given {@code objects/} directory over the provided database, returning the database
+     * itself if the repository has no commit-graph.
+     *
+     * <p>Like git, a single {@code info/commit-graph} file takes precedence over a split {@code commit-graph-chain}.
+     */
+    static ObjectDatabase open(File objectsDir, ObjectDatabase objects) throws IOException {
+        File single = new File(objectsDir, "info/commit-graph");
+        if (single.isFile()) {
+            return new CommitGraph(List.of(Layer.open(single, 0, 0)), objects);
+        }
+
+        File graphs = new File(objectsDir, "info/commit-graphs");
+        File chain = new File(graphs, "commit-graph-chain");
+        if (!chain.isFile()) {
+            return objects;
+        }
+
+        // base graph first, each layer numbers its commits after all of the ones below it
+        List<Layer> layers = new ArrayList<>();
+        int base = 0;
+        for (String line : Files.readAllLines(chain.toPath(), StandardCharsets.US_ASCII)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            Layer layer = Layer.open(new File(graphs, String.format("graph-%s.graph", line.trim())), layers.size(), base);
+            layers.add(layer);
+            base += layer.count;
+        }
+        return layers.isEmpty() ? objects : new CommitGraph(List.copyOf(layers), objects);
+    }
+
+    @Override
+    public RawObject read(String id) throws IOException {
+        return objects.read(id);
+    }
+
+    @Override
+    public Commit commit(String id) throws IOException {
+        byte[] target = HexFormat.of().parseHex(id);
+        // the newest layers hold the most recent commits, which are the ones history walks start from
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            Layer layer = layers.get(i);
+            int index = layer.find(target);
+            if (index >= 0) {
+                return commit(layer, index, id);
+            }
+        }
+        return objects.commit(id);
+    }
+
+    private Commit commit(Layer layer, int index, String id) throws IOException {
+        ByteBuffer data = layer.data;
+        int record = layer.commitData + index * DATA_WIDTH;
+
+        String tree = hex(data, record);
+        int first = data.getInt(record + HASH_LENGTH);
+        int second = data.getInt(record + HASH_LENGTH + 4);
+        int levelAndTime = data.getInt(record + HASH_LENGTH + 8);
+        long time = ((long) (levelAndTime & 0x3) << 32) | (data.getInt(record + HASH_LENGTH + 12) & 0xffffffffL);
+        int level = levelAndTime >>> 2;
+
+        List<String> parents = new ArrayList<>(2);
+        if (first != PARENT_NONE) {
+            parents.add(id(first));
+        }
+        if ((second & EXTRA_EDGES_NEEDED) != 0) {
+            if (layer.extraEdges < 0) {
+                throw new IOException(String.format("Commit-graph %s is missing its extra edges chunk.", layer.file));
+            }
+            int edge = layer.extraEdges + (second & ~EXTRA_EDGES_NEEDED) * 4;
+            int parent;
+            do {
+                parent = data.getInt(edge);
+                parents.add(id(parent & ~LAST_EDGE));
+                edge += 4;
+            } while ((parent & LAST_EDGE) == 0);
+        } else if (second != PARENT_NONE) {
+            parents.add(id(second));
+        }
+
+        // a zero level is written by git versions predating generation numbers and carries no information
+        return new Commit(id, tree, List.copyOf(parents), time, level == 0 ? Commit.GENERATION_INFINITY : level);
+    }
+
+    /**
+     * Returns the id of the commit at the given position, counted across the whole chain.
+     */
+    private String id(int position) throws IOException {
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            Layer layer = layers.get(i);
+            if (position >= layer.base) {
+                if (position - layer.base >= layer.count) {
+                    break;
+                }
+                return hex(layer.data, layer.oidLookup + (position - layer.base) * HASH_LENGTH);
+            }
+        }
+        throw new IOException(String.format("Commit-graph parent position %s is out of range.", position));
+    }
+
+    private static String hex(ByteBuffer data, int offset) {
+        byte[] id = new byte[HASH_LENGTH];
+        data.get(offset, id);
+        return HexFormat.of().formatHex(id);
+    }
+
+    private record Layer(File file, ByteBuffer data, int base, int count,
+                         int oidFanout, int oidLookup, int commitData, int extraEdges) {
+
+        static Layer open(File file, int expectedBaseGraphs, int base) throws IOException {
+            ByteBuffer data;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException(String.format("Commit-graph %s is too large to map.", file));
+                }
+                data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+
+            if (data.limit() < 8 || data.getInt(0) != SIGNATURE) {
+                throw new IOException(String.format("Not a commit-graph file: %s.", file));
+            }
+            if (data.get(4) != 1 || data.get(5) != 1) {
+                throw new IOException(String.format("Unsupported commit-graph version or hash in %s.", file));
+            }
+            if ((data.get(7) & 0xff) != expectedBaseGraphs) {
+                throw new IOException(String.format("Commit-graph %s doesn't match its position in the chain.", file));
+            }
+
+            int chunks = data.get(6) & 0xff;
+            int oidFanout = -1;
+            int oidLookup = -1;
+            int commitData = -1;
+            int extraEdges = -1;
+            for (int i = 0; i < chunks; i++) {
+                int entry = 8 + i * 12;
+                int offset = Math.toIntExact(data.getLong(entry + 4));
+                switch (data.getInt(entry)) {
+                    case OID_FANOUT -> oidFanout = offset;
+                    case OID_LOOKUP -> oidLookup = offset;
+                    case COMMIT_DATA -> commitData = offset;
+                    case EXTRA_EDGES -> extraEdges = offset;
+                    default -> {
+                        // bloom filters, generation data and base graph lists aren't needed
+                    }
+                }
+            }
+            if (oidFanout < 0 || oidLookup < 0 || commitData < 0) {
+                throw new IOException(String.format("Commit-graph %s is missing required chunks.", file));
+            }
+
+            int count = data.getInt(oidFanout + 255 * 4);
+            return new Layer(file, data, base, count, oidFanout, oidLookup, commitData, extraEdges);
+        }
+
+        /**
+         * Returns the index of the commit within this layer, or -1 if the layer doesn't contain it.
+         */
+        int find(byte[] target) {
+            int first = target[0] & 0xff;
+            int lo = first == 0 ? 0 : data.getInt(oidFanout + (first - 1) * 4);
+            int hi = data.getInt(oidFanout + first * 4);
+
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = compare(oidLookup + mid * HASH_LENGTH, target);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private int compare(int offset, byte[] target) {
+            for (int i = 0; i < HASH_LENGTH; i++) {
+                int cmp = Integer.compare(data.get(offset + i) & 0xff, target[i] & 0xff);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package io.github.stellarsunset.semver;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * In-process port of the history walk behind {@code git describe} (with its default options: annotated tags only, ten
+ * candidates, seven character abbreviations).
+ *
+ * <p>The walk is kept deliberately close to git's own <a href="https://github.com/git/git/blob/master/builtin/describe.c">
+ * describe.c</a> so the two produce identical tag/distance pairs, including git's date-ordered traversal and its
+ * tie-breaking between equally distant candidates. The one departure is that the walk stops as soon as everything
+ * left to walk is in the history of the best candidate found so far, which can't change the result, where git keeps
+ * going until it has found ten candidates or run out of history (walking all of it in repositories with few tags).
+ */
+final class Describe {
+
+    private static final int MAX_CANDIDATES = 10;
+
+    private static final int ABBREV = 7;
+
+    private static final int SEEN = 1;
+
+    private static final int ANNOTATED = 2;
+    private static final int LIGHTWEIGHT = 1;
+
+    /**
+     * Extra commits popped once only already-described history is left to walk, the same guard against clock skew git
+     * uses when limiting a revision range.
+     */
+    private static final int SLOP = 5;
+
+    /**
+     * Range walk flags, only used by {@link #describeSince} so they never mix with the candidate bits above.
+     */
+    private static final int NEW = 1 << 1;
+    private static final int OLD = 1 << 2;
+
+    private Describe() {
+    }
+
+    sealed interface Result {
+
+        /**
+         * HEAD is {@code depth} commits past the tag, a depth of zero means HEAD is the tagged commit.
+         */
+        record Described(String tag, int depth, String commit) implements Result {
+
+            /**
+             * Returns the result formatted as {@code git describe} would print it.
+             */
+            String text() {
+                return depth == 0 ? tag : String.format("%s-%s-g%s", tag, depth, commit.substring(0, ABBREV));
+            }
+        }
+
+        /**
+         * The repository has no tags at all.
+         */
+        record NoNames() implements Result {
+        }
+
+        /**
+         * There are tags, but none of the annotated ones are reachable from HEAD.
+         */
+        record Undescribable(String message) implements Result {
+        }
+    }
+
+    /**
+     * A tag name attached to a commit, only one name is kept per commit following git's preference rules.
+     */
+    private static final class Name {
+        private final String tag;
+        private final String target;
+        private final int prio;
+        private Long date;
+
+        private Name(String tag, String target, int prio) {
+            this.tag = tag;
+            this.target = target;
+            this.prio = prio;
+        }
+
+        private long date(ObjectDatabase database) throws IOException {
+            if (date == null) {
+                date = database.tag(target).time();
+            }
+            return date;
+        }
+    }
+
+    private static final class Node {
+        private final String id;
+        private final List<String> parents;
+        private final long time;
+        private final int generation;
+        private int flags;
+        private long order;
+        private boolean queued;
+
+        private Node(String id, List<String> parents, long time, int generation) {
+            this.id = id;
+            this.parents = parents;
+            this.time = time;
+            this.generation = generation;
+        }
+    }
+
+    private static final class Candidate {
+        private final Name name;
+        private final int flagWithin;
+        private final int foundOrder;
+        private int depth;
+
+        /**
+         * Number of queued commits not in the history of the candidate's commit.
+         */
+        private int outside;
+
+        private Candidate(Name name, int depth, int flagWithin, int foundOrder) {
+            this.name = name;
+            this.depth = depth;
+            this.flagWithin = flagWithin;
+            this.foundOrder = foundOrder;
+        }
+    }
+
+    /**
+     * Describes the given HEAD commit against the provided tag refs.
+     *
+     * @param shallow commits whose parents have been cut off by a shallow clone and so are treated as roots
+     */
+    static Result describe(ObjectDatabase database, String head, SortedMap<String, Refs.Ref> tags, Set<String> shallow)
+            throws IOException {
+        Map<String, Name> names = names(database, tags);
+        if (names.isEmpty()) {
+            return new Result.NoNames();
+        }
+
+        Name exact = names.get(head);
+        if (exact != null && exact.prio == ANNOTATED) {
+            return new Result.Described(exact.tag, 0, head);
+        }
+
+        return new Walk(database, shallow).run(head, names);
+    }
+
+    /**
+     * Describes the given HEAD commit incrementally from an earlier result for one of its ancestors, only walking the
+     * commits between the two instead of the full history back to the tag.
+     *
+     * <p>With unchanged tags, a full walk from HEAD first pops the new commits one by one (none of which can be in the
+     * history of a candidate) and then carries on exactly like the walk from the anchor did, with every depth offset by
+     * the number of new commits. That only holds while the new commits form a linear, untagged history on top of the
+     * anchor though, merges bring in other paths which git's date-ordered heuristics may weigh differently. Anything
+     * else (merges, tagged new commits, the anchor no longer being an ancestor of HEAD) returns empty so the caller can
+     * fall back to a full walk.
+     *
+     * @param anchor a previous result computed against exactly the provided tags
+     */
+    static Optional<Result> describeSince(ObjectDatabase database, String head, Result.Described anchor,
+                                          SortedMap<String, Refs.Ref> tags, Set<String> shallow) throws IOException {
+        Map<String, Name> names = names(database, tags);
+        if (names.isEmpty()) {
+            return Optional.of(new Result.NoNames());
+        }
+        if (head.equals(anchor.commit())) {
+            return Optional.of(anchor);
+        }
+
+        Walk walk = new Walk(database, shallow);
+        Optional<List<Node>> added = walk.range(anchor.commit(), head);
+        if (added.isEmpty() || added.get().stream().anyMatch(n -> n.parents.size() != 1 || names.containsKey(n.id))) {
+            return Optional.empty();
+        }
+        return Optional.of(new Result.Described(anchor.tag(), anchor.depth() + added.get().size(), head));
+    }
+
+    /**
+     * Describes every one of the given commits, as if each of them had been HEAD while the provided tags existed.
+     *
+     * <p>The tags are resolved once and results are shared between commits: an untagged commit with a single parent is
+     * described by its parent's result one commit further away (the same reasoning as {@link #describeSince}), so only
+     * tagged commits, merges and root commits need a walk of their own. Passing commits oldest first keeps the chains
+     * of single parent commits that have to be followed before reaching a known result short.
+     *
+     * @return the result for every commit, in the order they were given
+     */
+    static Map<String, Result> describeAll(ObjectDatabase database, List<String> commits,
+                                           SortedMap<String, Refs.Ref> tags, Set<String> shallow) throws IOException {
+        Map<String, Name> names = names(database, tags);
+
+        Map<String, Result> known = new HashMap<>();
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (String commit : commits) {
+            results.put(commit, names.isEmpty() ? new Result.NoNames() : describeAll(database, commit, names, shallow, known));
+        }
+        return results;
+    }
+
+    private static Result describeAll(ObjectDatabase database, String commit, Map<String, Name> names,
+                                      Set<String> shallow, Map<String, Result> known) throws IOException {
+        // follow single parents back to the first commit with a known (or directly computable) result
+        Deque<String> chain = new ArrayDeque<>();
+        String current = commit;
+        Result result = known.get(current);
+        while (result == null) {
+            List<String> parents = shallow.contains(current) ? List.of() : database.commit(current).parents();
+            Name name = names.get(current);
+            if (name != null && name.prio == ANNOTATED) {
+                result = new Result.Described(name.tag, 0, current);
+            } else if (name != null || parents.size() != 1) {
+                result = new Walk(database, shallow).run(current, names);
+            } else {
+                chain.push(current);
+                current = parents.getFirst();
+                result = known.get(current);
+                continue;
+            }
+            known.put(current, result);
+        }
+
+        // then walk the chain back up, every commit is one further away from the tag than its parent
+        while (!chain.isEmpty()) {
+            String parent = current;
+            current = chain.pop();
+            result = switch (result) {
+                case Result.Described described -> new Result.Described(described.tag(), described.depth() + 1, current);
+                case Result.Undescribable undescribable -> new Result.Undescribable(
+                        undescribable.message().replace(parent, current));
+                case Result.NoNames noNames -> noNames;
+            };
+            known.put(current, result);
+        }
+        return result;
+    }
+
+    /**
+     * Builds the commit to tag name mapping the same way git's {@code get_name}/{@code add_to_known_names} do, refs are
+     * visited in sorted order and annotated tags are preferred, falling back to the newest tagger date.
+     */
+    private static Map<String, Name> names(ObjectDatabase database, SortedMap<String, Refs.Ref> tags) throws IOException {
+        Map<String, String> peeled = peel(database, tags.values().stream()
+                .filter(ref -> ref.peeled().isEmpty())
+                .map(Refs.Ref::id)
+                .toList());
+
+        Map<String, Name> names = new HashMap<>();
+        for (Refs.Ref ref : tags.values()) {
+            String target = ref.peeled().orElseGet(() -> peeled.get(ref.id()));
+
+            Name name = new Name(ref.name().substring("refs/tags/".length()), ref.id(),
+                    target.equals(ref.id()) ? LIGHTWEIGHT : ANNOTATED);
+
+            Name existing = names.get(target);
+            if (existing == null
+                    || existing.prio < name.prio
+                    || (existing.prio == ANNOTATED && name.prio == ANNOTATED && existing.date(database) < name.date(database))) {
+                names.put(target, name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns the object each of the given refs ultimately points at, following chains of annotated tags. The objects
+     * at each level of the chains are read as a single batch.
+     */
+    private static Map<String, String> peel(ObjectDatabase database, List<String> ids) throws IOException {
+        Map<String, String> peeled = new HashMap<>();
+        Map<String, String> pending = new HashMap<>();
+        ids.forEach(id -> pending.put(id, id));
+
+        while (!pending.isEmpty()) {
+            List<String> refs = List.copyOf(pending.keySet());
+            List<ObjectDatabase.RawObject> objects = database.readAll(refs.stream().map(pending::get).toList());
+            for (int i = 0; i < refs.size(); i++) {
+                String current = pending.get(refs.get(i));
+                ObjectDatabase.RawObject object = objects.get(i);
+                if (object.type() == ObjectDatabase.Type.TAG) {
+                    pending.put(refs.get(i), ObjectDatabase.Tag.parse(current, object.data()).object());
+                } else {
+                    pending.remove(refs.get(i));
+                    peeled.put(refs.get(i), current);
+                }
+            }
+        }
+        return peeled;
+    }
+
+    private static final class Walk {
+
+        private final ObjectDatabase database;
+        private final Set<String> shallow;
+
+        private final Map<String, Node> nodes = new HashMap<>();
+
+        /**
+         * Newest commit first, ties are broken by insertion order which matches git's commit_list_insert_by_date.
+         */
+        private final PriorityQueue<Node> list = new PriorityQueue<>(
+                Comparator.comparingLong((Node n) -> -n.time).thenComparingLong(n -> n.order));
+
+        private final List<Candidate> matches = new ArrayList<>();
+
+        private long inserted;
+
+        private Walk(ObjectDatabase database, Set<String> shallow) {
+            this.database = database;
+            this.shallow = shallow;
+        }
+
+        private Result run(String head, Map<String, Name> names) throws IOException {
+            Node start = node(head);
+            start.flags = SEEN;
+            insert(start);
+
+            int annotated = 0;
+            int unannotated = 0;
+            int seen = 0;
+            Node gaveUpOn = null;
+
+            while (!list.isEmpty()) {
+                Node c = poll();
+                seen++;
+
+                Name name = names.get(c.id);
+                if (name != null) {
+                    if (name.prio < ANNOTATED) {
+                        unannotated++;
+                    } else if (matches.size() < MAX_CANDIDATES) {
+                        int found = matches.size() + 1;
+                        Candidate candidate = new Candidate(name, seen - 1, 1 << found, found);
+                        candidate.outside = list.size();
+                        matches.add(candidate);
+                        c.flags |= candidate.flagWithin;
+                        annotated++;
+                    } else {
+                        gaveUpOn = c;
+                        break;
+                    }
+                }
+
+                for (Candidate candidate : matches) {
+                    if ((c.flags & candidate.flagWithin) == 0) {
+                        candidate.depth++;
+                    }
+                }
+
+                // stop if the last remaining path is already covered by the best candidate(s)
+                if (annotated > 0 && list.isEmpty()) {
+                    int bestDepth = Integer.MAX_VALUE;
+                    int bestWithin = 0;
+                    for (Candidate candidate : matches) {
+                        if (candidate.depth < bestDepth) {
+                            bestDepth = candidate.depth;
+                            bestWithin = candidate.flagWithin;
+                        } else if (candidate.depth == bestDepth) {
+                            bestWithin |= candidate.flagWithin;
+                        }
+                    }
+                    if ((c.flags & bestWithin) == bestWithin) {
+                        break;
+                    }
+                }
+
+                propagate(c);
+
+                // once everything left to walk is in the history of the best candidate its depth can't grow anymore,
+                // while the depth of every other candidate (found or yet to be found) is already at least as large
+                if (annotated > 0 && best().outside == 0) {
+                    break;
+                }
+            }
+
+            if (matches.isEmpty()) {
+                return new Result.Undescribable(unannotated > 0
+                        ? String.format("No annotated tags can describe '%s'.%nHowever, there were unannotated tags: try --tags.", head)
+                        : String.format("No tags can describe '%s'.%nTry --always, or create some tags.", head));
+            }
+
+            matches.sort(Comparator.comparingInt((Candidate t) -> t.depth).thenComparingInt(t -> t.foundOrder));
+            Candidate best = matches.getFirst();
+
+            if (gaveUpOn != null) {
+                insert(gaveUpOn);
+            }
+            finishDepthComputation(best);
+
+            return new Result.Described(best.name.tag, best.depth, head);
+        }
+
+        /**
+         * Returns the candidate the walk would pick if it ended now, the closest one and the first found among equals.
+         */
+        private Candidate best() {
+            Candidate best = matches.getFirst();
+            for (Candidate candidate : matches) {
+                if (candidate.depth < best.depth) {
+                    best = candidate;
+                }
+            }
+            return best;
+        }
+
+        private void finishDepthComputation(Candidate best) throws IOException {
+            while (!list.isEmpty()) {
+                Node c = poll();
+                if ((c.flags & best.flagWithin) != 0) {
+                    if (list.stream().allMatch(n -> (n.flags & best.flagWithin) != 0)) {
+                        break;
+                    }
+                } else {
+                    best.depth++;
+                }
+                propagate(c);
+            }
+        }
+
+        /**
+         * Returns the commits reachable from {@code to} but not from {@code from}, the equivalent of {@code git rev-list
+         * from..to}, empty if {@code from} isn't an ancestor of {@code to}.
+         *
+         * <p>Unlike the describe walk itself (which has to stay date-ordered to match git) this one stops as soon as
+         * generation numbers prove the remaining new commits can't reach {@code from}, so rewritten history is detected
+         * without walking down to the merge base.
+         */
+        private Optional<List<Node>> range(String from, String to) throws IOException {
+            Node base = node(from);
+            base.flags = SEEN | OLD;
+            insert(base);
+
+            Node start = node(to);
+            start.flags = SEEN | NEW;
+            insert(start);
+
+            List<Node> popped = new ArrayList<>();
+            int slop = SLOP;
+            while (!list.isEmpty() && slop > 0) {
+                Node c = poll();
+                popped.add(c);
+
+                for (String parent : c.parents) {
+                    Node p = node(parent);
+                    if ((p.flags & SEEN) == 0) {
+                        p.flags |= SEEN;
+                        insert(p);
+                    }
+                    if ((c.flags & OLD) != 0) {
+                        markOld(p);
+                    } else {
+                        p.flags |= c.flags;
+                    }
+                }
+
+                if (list.stream().allMatch(n -> (n.flags & OLD) != 0)) {
+                    slop--;
+                } else {
+                    slop = SLOP;
+                }
+
+                // with generation numbers we know when none of the remaining new paths can lead back to the anchor
+                if ((base.flags & NEW) == 0
+                        && base.generation != ObjectDatabase.Commit.GENERATION_INFINITY
+                        && list.stream()
+                        .filter(n -> (n.flags & OLD) == 0)
+                        .allMatch(n -> n.generation <= base.generation)) {
+                    return Optional.empty();
+                }
+            }
+
+            if ((base.flags & NEW) == 0) {
+                return Optional.empty();
+            }
+            return Optional.of(popped.stream()
+                    .filter(n -> (n.flags & (NEW | OLD)) == NEW)
+                    .toList());
+        }
+
+        /**
+         * Marks a commit as reachable from the old end of the range, along with any ancestors of it the walk already
+         * went past (which can happen when committer dates are skewed).
+         */
+        private void markOld(Node node) {
+            Deque<Node> pending = new ArrayDeque<>();
+            pending.push(node);
+            while (!pending.isEmpty()) {
+                Node c = pending.pop();
+                if ((c.flags & OLD) != 0) {
+                    continue;
+                }
+                c.flags |= OLD;
+                for (String parent : c.parents) {
+                    Node p = nodes.get(parent);
+                    if (p != null) {
+                        pending.push(p);
+                    }
+                }
+            }
+        }
+
+        private void propagate(Node c) throws IOException {
+            for (String parent : c.parents) {
+                Node p = node(parent);
+                if ((p.flags & SEEN) == 0) {
+                    insert(p);
+                }
+                if (p.queued) {
+                    for (Candidate candidate : matches) {
+                        if ((p.flags & candidate.flagWithin) == 0 && (c.flags & candidate.flagWithin) != 0) {
+                            candidate.outside--;
+                        }
+                    }
+                }
+                p.flags |= c.flags;
+            }
+        }
+
+        private void insert(Node node) {
+            node.order = inserted++;
+            node.queued = true;
+            list.add(node);
+            for (Candidate candidate : matches) {
+                if ((node.flags & candidate.flagWithin) == 0) {
+                    candidate.outside++;
+                }
+            }
+        }
+
+        private Node poll() {
+            Node node = list.poll();
+            node.queued = false;
+            for (Candidate candidate : matches) {
+                if ((node.flags & candidate.flagWithin) == 0) {
+                    candidate.outside--;
+                }
+            }
+            return node;
+        }
+
+        private Node node(String id) throws IOException {
+            Node node = nodes.get(id);
+            if (node == null) {
+                ObjectDatabase.Commit commit = database.commit(id);
+                node = new Node(id, shallow.contains(id) ? List.of() : commit.parents(), commit.time(), commit.generation());
+                nodes.put(id, node);
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.stellarsunset.semver;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * {@link ObjectDatabase} reading loose objects and pack files directly out of a repository's {@code objects/}
+ * directory.
+ */
+final class FileObjectDatabase implements ObjectDatabase, Closeable {
+
+    private final File objectsDir;
+    private final List<PackFile> packs;
+
+    private FileObjectDatabase(File objectsDir, List<PackFile> packs) {
+        this.objectsDir = objectsDir;
+        this.packs = packs;
+    }
+
+    /**
+     * Opens the object database rooted at the given {@code objects/} directory, packs are searched most-recent first as
+     * that's where git puts the objects most likely to be asked for.
+     */
+    static FileObjectDatabase open(File objectsDir) throws IOException {
+        File[] indexes = new File(objectsDir, "pack").listFiles((_, name) -> name.endsWith(".idx"));
+
+        List<PackFile> packs = new ArrayList<>();
+        if (indexes != null) {
+            Arrays.sort(indexes, Comparator.comparingLong(File::lastModified).reversed());
+            for (File index : indexes) {
+                packs.add(PackFile.open(index));
+            }
+        }
+        return new FileObjectDatabase(objectsDir, packs);
+    }
+
+    @Override
+    public RawObject read(String id) throws IOException {
+        for (PackFile pack : packs) {
+            long offset = pack.offset(id);
+            if (offset >= 0) {
+                return pack.read(offset, this);
+            }
+        }
+        return readLoose(id);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (PackFile pack : packs) {
+            pack.close();
+        }
+    }
+
+    private RawObject readLoose(String id) throws IOException {
+        byte[] compressed;
+        try {
+            compressed = Files.readAllBytes(new File(new File(objectsDir, id.substring(0, 2)), id.substring(2)).toPath());
+        } catch (NoSuchFileException e) {
+            throw new MissingObjectException(id);
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+
+            // header is "<type> <size>\0", 32 bytes is plenty for any real object
+            byte[] header = new byte[32];
+            int headerLength = inflater.inflate(header);
+            int space = indexOf(header, headerLength, (byte) ' ');
+            int nul = indexOf(header, headerLength, (byte) 0);
+            if (space < 0 || nul < space) {
+                throw new IOException(String.format("Malformed loose object header for %s.", id));
+            }
+
+            Type type = Type.fromName(new String(header, 0, space, StandardCharsets.US_ASCII));
+            int size = Integer.parseInt(new String(header, space + 1, nul - space - 1, StandardCharsets.US_ASCII));
+
+            byte[] data = new byte[size];
+            int written = Math.min(size, headerLength - nul - 1);
+            System.arraycopy(header, nul + 1, data, 0, written);
+            while (written < size) {
+                int inflated = inflater.inflate(data, written, size - written);
+                if (inflated == 0) {
+                    throw new IOException(String.format("Truncated loose object %s.", id));
+                }
+                written += inflated;
+            }
+            return new RawObject(type, data);
+        } catch (DataFormatException | NumberFormatException e) {
+            throw new IOException(String.format("Corrupt loose object %s.", id), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int length, byte target) {
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
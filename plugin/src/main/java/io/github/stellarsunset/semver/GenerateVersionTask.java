@@ -0,0 +1,148 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates a Java class holding the components of the version as compile-time constants, along with a properties
+ * resource next to it, so applications can read their version without parsing the jar manifest at startup.
+ *
+ * <p>The serialized version is the only input changing from one build to the next, so the task is up-to-date (or
+ * loaded from the build cache) until the version itself changes.
+ */
+@CacheableTask
+public abstract class GenerateVersionTask extends DefaultTask {
+
+    private static final Version.Serde SERDE = Version.Serde.java();
+
+    /**
+     * Name of the properties resource, written in the package of the generated class.
+     */
+    static final String PROPERTIES = "version.properties";
+
+    @Override
+    public String getDescription() {
+        return "Generate a class holding the project version as constants, along with a version.properties resource";
+    }
+
+    /**
+     * The version in the {@link Version.Serde#java()} format.
+     */
+    @Input
+    public abstract Property<String> getVersion();
+
+    /**
+     * Fully qualified name of the generated class, {@code autosemver.BuildVersion} by default.
+     */
+    @Input
+    public abstract Property<String> getClassName();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getSourceDirectory();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getResourceDirectory();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @TaskAction
+    public void generate() throws IOException {
+        Constants constants = Constants.of(SERDE.parse(getVersion().get()));
+
+        String className = getClassName().get();
+        int dot = className.lastIndexOf('.');
+        String packageName = dot < 0 ? "" : className.substring(0, dot);
+        String simpleName = className.substring(dot + 1);
+
+        // a renamed class mustn't leave the previous one behind
+        getFileSystemOperations().delete(spec -> spec.delete(getSourceDirectory(), getResourceDirectory()));
+
+        Path source = getSourceDirectory().get().getAsFile().toPath().resolve(className.replace('.', '/') + ".java");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, constants.source(packageName, simpleName, getVersion().get()), StandardCharsets.UTF_8);
+
+        Path resource = getResourceDirectory().get().getAsFile().toPath()
+                .resolve(packageName.replace('.', '/')).resolve(PROPERTIES);
+        Files.createDirectories(resource.getParent());
+        Files.writeString(resource, constants.properties(getVersion().get()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The components of a version, a release has no distance and only a dirty one has a commit.
+     */
+    record Constants(int major, int minor, int patch, int distance, String commit, boolean dirty) {
+
+        static Constants of(Version version) {
+            boolean dirty = version instanceof Version.Dirty;
+            Version.Release release = Version.releasePart(version);
+            String commit = version instanceof Version.Dirty d && d.commit() != null ? d.commit() : "";
+            return switch (version instanceof Version.Dirty d ? d.version() : version) {
+                case Version.PreRelease pre -> new Constants(release.major(), release.minor(), release.patch(),
+                        pre.distance(), pre.commit(), dirty);
+                case Version.Release _, Version.Dirty _ -> new Constants(release.major(), release.minor(),
+                        release.patch(), 0, commit, dirty);
+            };
+        }
+
+        String source(String packageName, String simpleName, String version) {
+            String declaration = packageName.isEmpty() ? "" : "package " + packageName + ";\n\n";
+            return declaration + """
+                    /**
+                     * Version of this build, generated by the auto-semver plugin.
+                     */
+                    public final class %s {
+
+                        public static final String VERSION = "%s";
+
+                        public static final int MAJOR = %d;
+                        public static final int MINOR = %d;
+                        public static final int PATCH = %d;
+
+                        /**
+                         * Commits since the release tag, zero on the release commit itself.
+                         */
+                        public static final int DISTANCE = %d;
+
+                        /**
+                         * Abbreviated id of the commit, empty on the release commit itself.
+                         */
+                        public static final String COMMIT = "%s";
+
+                        public static final boolean DIRTY = %b;
+
+                        private %s() {
+                        }
+                    }
+                    """.formatted(simpleName, version, major, minor, patch, distance, commit, dirty, simpleName);
+        }
+
+        /**
+         * Written by hand rather than with {@link java.util.Properties#store}, which adds a timestamp and would make
+         * every output different.
+         */
+        String properties(String version) {
+            return """
+                    version=%s
+                    major=%d
+                    minor=%d
+                    patch=%d
+                    distance=%d
+                    commit=%s
+                    dirty=%b
+                    """.formatted(version, major, minor, patch, distance, commit, dirty);
+        }
+    }
+}
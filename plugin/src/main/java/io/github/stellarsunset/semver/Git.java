@@ -1,28 +1,51 @@
 package io.github.stellarsunset.semver;
 
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.problems.Problem;
 import org.gradle.api.problems.ProblemGroup;
 import org.gradle.api.problems.ProblemId;
 import org.gradle.api.problems.ProblemReporter;
 import org.gradle.api.problems.Severity;
 import org.gradle.process.ExecOperations;
-import org.gradle.process.internal.ExecException;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * <a href="https://git-scm.com/book/en/v2/Appendix-B:-Embedding-Git-in-your-Applications-JGit">JGit</a>-esque wrapper
  * for simple Git operations needed to infer and set the project version based on Git tags.
  *
- * <p>This wraps Gradle's managed process API {@link ExecOperations} which is configuration-cache compatible.
+ * <p>Reads are answered in-process by {@link GitReader} when the repository layout allows it, everything else wraps
+ * Gradle's managed process API {@link ExecOperations} which is configuration-cache compatible, run by
+ * {@link GitProcess} so no command outlives its {@code timeout} or the build.
+ *
+ * <p>The {@link CatFile} co-processes the readers need for objects outside the repository's own object files come from
+ * {@code catFiles} when set, e.g. the pool of the build's {@link VersionService}, and otherwise live as long as the
+ * reader using them.
  */
 @SuppressWarnings("UnstableApiUsage")
-public record Git(File projectDir, ExecOperations exec, ProblemReporter reporter) {
+public record Git(File projectDir, ExecOperations exec, ProblemReporter reporter, Duration timeout,
+                  CatFile.Pool catFiles) {
 
     private static final ProblemGroup GIT = ProblemGroup.create("git", "Issues working with local git.");
 
+    private static final Logger LOGGER = Logging.getLogger(Git.class);
+
     private static final Version.Serde SERDE = Version.Serde.gitPorcelain();
 
     /**
@@ -32,35 +55,471 @@ public record Git(File projectDir, ExecOperations exec, ProblemReporter reporter
     private static final String NO_TAGS = "fatal: No names found, cannot describe anything.";
 
     /**
-     * Returns the current repository version as parsed from the stdout of the 'git describe' command on the command line.
+     * Most stdout kept from a command whose output is captured rather than streamed, far more than any of them prints.
+     */
+    private static final int MAX_STDOUT = 64 * 1024;
+
+    /**
+     * Commits fetched by the first deepening of a shallow clone, doubled every time a release tag is still out of reach.
+     */
+    private static final int DEEPEN = 32;
+
+    public Git(File projectDir, ExecOperations exec, ProblemReporter reporter) {
+        this(projectDir, exec, reporter, GitProcess.DEFAULT_TIMEOUT);
+    }
+
+    public Git(File projectDir, ExecOperations exec, ProblemReporter reporter, Duration timeout) {
+        this(projectDir, exec, reporter, timeout, null);
+    }
+
+    /**
+     * Returns a copy of this handle whose readers share the co-processes of the given pool.
+     */
+    Git withCatFiles(CatFile.Pool catFiles) {
+        return new Git(projectDir, exec, reporter, timeout, catFiles);
+    }
+
+    /**
+     * A part of a monorepo versioned on its own, from tags named {@code <tagPrefix>v<version>} and with a distance
+     * counting only the commits that touched {@code path}.
+     *
+     * @param path directory of the scope relative to the root of the work tree using '/' separators, empty for the
+     *             whole repository
+     */
+    public record Scope(String tagPrefix, String path) {
+
+        /**
+         * The whole repository, versioned from the plain {@code v<version>} tags.
+         */
+        public static final Scope ROOT = new Scope("", "");
+
+        /**
+         * Returns the scope for the given directory of the work tree, whose tags are prefixed with that directory.
+         */
+        public static Scope of(String path) {
+            return path.isEmpty() ? ROOT : new Scope(path + "/", path);
+        }
+
+        Version.Serde serde() {
+            return Version.Serde.gitPorcelain(tagPrefix);
+        }
+    }
+
+    /**
+     * Returns the canonical git directory backing the project, falling back to the project directory itself when it
+     * isn't part of a repository (in which case any subsequent git command will report the problem).
+     */
+    public File gitDir() {
+        return GitDir.find(projectDir).map(GitDir::dir).orElse(projectDir);
+    }
+
+    /**
+     * Returns the git directory shared by every worktree of the repository, the one holding its tags and objects, with
+     * the same fallback as {@link #gitDir()}.
+     */
+    public File commonDir() {
+        return GitDir.find(projectDir).map(GitDir::commonDir).orElse(projectDir);
+    }
+
+    /**
+     * Returns the current repository version, resolved in-process by {@link GitReader} where possible and otherwise as
+     * parsed from the stdout of the 'git describe' command on the command line.
      */
     public Version version() {
-        return switch (runCommand("git", "describe")) {
+        return describeInProcess().orElseGet(this::describeWithCommand);
+    }
+
+    /**
+     * Resolves the version without forking git, empty whenever the reader can't give a definitive answer (unsupported
+     * repository layout, unborn HEAD, nothing to describe) so the git CLI can take over and report any problem itself.
+     */
+    private Optional<Version> describeInProcess() {
+        Optional<GitDir> gitDir = GitDir.find(projectDir);
+        if (gitDir.isEmpty()) {
+            return Optional.empty();
+        }
+        try (GitReader reader = open(gitDir.get().dir()); var _ = Metrics.span(Metrics.Stage.WALK, "describe")) {
+            return reader.describe().flatMap(Git::toVersion);
+        } catch (CatFile.TimedOutException e) {
+            throw timedOut(e.commandLine(), "", e.getCause());
+        } catch (IOException e) {
+            Metrics.count(Metrics.Counter.FALLBACKS);
+            LOGGER.debug("Falling back to the git CLI to describe {}: {}", projectDir, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns true if tracked files of the work tree have changes not yet committed (staged or not), see
+     * {@link WorkTree}. Untracked files don't count, just like for {@code git describe --dirty}.
+     */
+    public boolean dirty() {
+        return WorkTree.isDirty(gitDir(), catFiles, exec, timeout);
+    }
+
+    /**
+     * Returns the current repository version derived from the version previously resolved for an ancestor commit of
+     * HEAD, only walking the commits made since then. The tags must not have changed in between.
+     *
+     * <p>Empty whenever that isn't possible (the commit is no longer an ancestor of HEAD, one of the new commits is
+     * tagged, the repository can't be read in-process) in which case a full {@link #version()} is required.
+     */
+    public Optional<Version> versionSince(String commit, Version previous) {
+        Optional<GitDir> gitDir = GitDir.find(projectDir);
+        if (gitDir.isEmpty()) {
+            return Optional.empty();
+        }
+        Describe.Result.Described anchor = switch (previous) {
+            case Version.Release release -> new Describe.Result.Described(SERDE.serialize(release), 0, commit);
+            case Version.PreRelease pre -> new Describe.Result.Described(SERDE.serialize(pre.release()), pre.distance(), commit);
+            case Version.Dirty _ -> null;
+        };
+        if (anchor == null) {
+            return Optional.empty();
+        }
+        try (GitReader reader = open(gitDir.get().dir());
+             var _ = Metrics.span(Metrics.Stage.WALK, "describe since " + commit)) {
+            return reader.describeSince(anchor).flatMap(Git::toVersion);
+        } catch (CatFile.TimedOutException e) {
+            throw timedOut(e.commandLine(), "", e.getCause());
+        } catch (IOException e) {
+            Metrics.count(Metrics.Counter.FALLBACKS);
+            LOGGER.debug("Unable to describe {} incrementally: {}", projectDir, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Fetches more of the history of a shallow clone from the given remote, deepening it exponentially until a release
+     * tag of every one of the given scopes is reachable from HEAD (or there is nothing left to fetch). Does nothing in
+     * a complete clone.
+     *
+     * <p>Tags come along with the commits they point at as in any fetch, unless the remote is set up to never fetch them
+     * ({@code remote.<name>.tagOpt=--no-tags}, e.g. by {@code git clone --no-tags}). Versions are then described from
+     * the partial history, whose distances miss the commits of branches merged from beyond the shallow boundary.
+     */
+    public void deepen(String remote, List<Scope> scopes) {
+        File shallow = new File(commonDir(), "shallow");
+        for (int depth = DEEPEN; shallow.isFile() && !tagged(scopes); depth *= 2) {
+            String boundary = boundary(shallow);
+            try (var _ = Metrics.span(Metrics.Stage.FETCH, "deepen " + depth)) {
+                if (runCommand(_ -> {}, "git", "fetch", "--deepen=" + depth, remote) instanceof Result.Failure failure) {
+                    throw reporter.throwing(
+                            failure.e,
+                            ProblemId.create("unable-to-deepen-shallow-clone", "Unable to deepen shallow clone.", GIT),
+                            spec -> spec
+                                    .severity(Severity.ERROR)
+                                    .details(failure.stderr)
+                                    .solution("Ensure the remote '" + remote + "' exists and is reachable.")
+                                    .withException(failure.e)
+                    );
+                }
+            }
+            if (boundary.equals(boundary(shallow))) {
+                LOGGER.warn("The shallow clone {} can't be deepened any further from '{}', it has no release tag",
+                        projectDir, remote);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns true if a release tag of every given scope is reachable from HEAD (or HEAD is unborn).
+     */
+    private boolean tagged(List<Scope> scopes) {
+        try (GitReader reader = open(gitDir()); var _ = Metrics.span(Metrics.Stage.WALK, "describe shallow")) {
+            return reader.describe(scopes)
+                    .map(results -> results.values().stream().allMatch(Describe.Result.Described.class::isInstance))
+                    .orElse(true);
+        } catch (CatFile.TimedOutException e) {
+            throw timedOut(e.commandLine(), "", e.getCause());
+        } catch (IOException e) {
+            Metrics.count(Metrics.Counter.FALLBACKS);
+            LOGGER.debug("Falling back to the git CLI to find release tags of {}: {}", projectDir, e.getMessage());
+            return scopes.stream().allMatch(scope ->
+                    runCommand(describeReleases(scope.tagPrefix(), "--abbrev=0")) instanceof Result.Success);
+        }
+    }
+
+    /**
+     * Returns the commits at the shallow boundary, empty once the clone is complete.
+     */
+    private static String boundary(File shallow) {
+        try {
+            return Files.readString(shallow.toPath(), StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Returns the current version of each of the provided monorepo scopes, all resolved together in a single walk of
+     * history by {@link GitReader} where possible and otherwise one by one on the command line.
+     */
+    public Map<Scope, Version> versions(List<Scope> scopes) {
+        Map<Scope, Version> versions = new LinkedHashMap<>();
+        releasedVersions(scopes).forEach((scope, version) -> versions.put(scope, version.orElseGet(Version::initial)));
+        return versions;
+    }
+
+    /**
+     * Same as {@link #versions(List)}, but empty for the scopes without any release tag reachable from HEAD rather than
+     * the initial version, e.g. to tell a project never released apart from one with no commits since its release.
+     */
+    public Map<Scope, Optional<Version>> releasedVersions(List<Scope> scopes) {
+        Map<Scope, Describe.Result> described = describeInProcess(scopes);
+
+        Map<Scope, Optional<Version>> versions = new LinkedHashMap<>();
+        for (Scope scope : scopes) {
+            Optional<Version> version = switch (described.get(scope)) {
+                case Describe.Result.Described result -> Optional.of(scope.serde().parse(result.text()));
+                case Describe.Result.NoNames _ -> Optional.empty();
+                case Describe.Result.Undescribable _ -> describeWithCommand(scope);
+                case null -> describeWithCommand(scope);
+            };
+            versions.put(scope, version);
+        }
+        return versions;
+    }
+
+    /**
+     * Returns the version each of the given commits (anything {@code git rev-parse} understands) would have resolved to
+     * as HEAD, keyed by full commit id in the order the commits were given.
+     *
+     * <p>Commits older than every tag predate the tags, the plugin would have resolved them to the initial version.
+     */
+    public Map<String, Version> versionsOf(List<String> commits) {
+        List<String> revisions = commits.stream().map(commit -> commit + "^{commit}").toList();
+        return versionsAt(commits(concat(List.of("git", "rev-parse"), revisions)));
+    }
+
+    /**
+     * Returns the version every commit of the given range (anything {@code git rev-list} understands, e.g.
+     * {@code v1.0.0..HEAD}) would have resolved to as HEAD, keyed by full commit id with parents before children.
+     */
+    public Map<String, Version> versionsIn(String range) {
+        return versionsAt(commits("git", "rev-list", "--topo-order", "--reverse", range));
+    }
+
+    private Map<String, Version> versionsAt(List<String> commits) {
+        Map<String, Version> versions = new LinkedHashMap<>();
+        describeAllInProcess(commits).forEach((commit, result) -> versions.put(commit,
+                toVersion(result, SERDE).orElseGet(Version::initial)));
+        for (String commit : commits) {
+            if (!versions.containsKey(commit)) {
+                versions.put(commit, describeWithCommand(commit));
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Returns the index of all the releases tagged in the repository with the given tag prefix (empty for the plain
+     * {@code v1.2.3} tags), read from the ref files directly where possible and otherwise listed by the git CLI.
+     */
+    public ReleaseIndex releases(String tagPrefix) {
+        Optional<GitDir> gitDir = GitDir.find(projectDir);
+        if (gitDir.isPresent()) {
+            try (var _ = Metrics.span(Metrics.Stage.PARSE, "releases " + tagPrefix)) {
+                return ReleaseIndex.read(gitDir.get().dir(), tagPrefix);
+            } catch (IOException e) {
+                Metrics.count(Metrics.Counter.FALLBACKS);
+                LOGGER.debug("Falling back to the git CLI to list the tags of {}: {}", projectDir, e.getMessage());
+            }
+        }
+        List<String> tags = new ArrayList<>();
+        return switch (runCommand(tags::add, "git", "for-each-ref", "--format=%(refname:strip=2)", "refs/tags/" + tagPrefix)) {
+            case Result.Success _ -> ReleaseIndex.of(tags, tagPrefix);
+            case Result.Failure failure -> throw unableToDescribe(failure);
+        };
+    }
+
+    private Map<String, Describe.Result> describeAllInProcess(List<String> commits) {
+        Optional<GitDir> gitDir = GitDir.find(projectDir);
+        if (gitDir.isEmpty()) {
+            return Map.of();
+        }
+        try (GitReader reader = open(gitDir.get().dir()); var _ = Metrics.span(Metrics.Stage.WALK, "describe all")) {
+            return reader.describeAll(commits);
+        } catch (CatFile.TimedOutException e) {
+            throw timedOut(e.commandLine(), "", e.getCause());
+        } catch (IOException e) {
+            Metrics.count(Metrics.Counter.FALLBACKS);
+            LOGGER.debug("Falling back to the git CLI to describe commits of {}: {}", projectDir, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private Version describeWithCommand(String commit) {
+        return switch (runCommand(describeReleases("", commit))) {
             case Result.Success success -> SERDE.parse(success.stdout);
+            case Result.Failure failure -> {
+                String stderr = failure.stderr.trim();
+                if (stderr.equals(NO_TAGS) || stderr.startsWith("fatal: No tags can describe")
+                        || stderr.startsWith("fatal: No annotated tags can describe")) {
+                    yield Version.initial();
+                }
+                throw unableToDescribe(failure);
+            }
+        };
+    }
+
+    /**
+     * Returns the full ids of the commits listed by the given git command, one per line.
+     */
+    private List<String> commits(String... commandLine) {
+        List<String> commits = new ArrayList<>();
+        Consumer<String> lines = line -> {
+            if (!line.isBlank()) {
+                commits.add(line.trim());
+            }
+        };
+        return switch (runCommand(lines, commandLine)) {
+            case Result.Success _ -> commits;
+            case Result.Failure failure -> throw reporter.throwing(
+                    failure.e,
+                    ProblemId.create("unable-to-list-commits", "Unable to list the commits to describe.", GIT),
+                    spec -> spec
+                            .severity(Severity.ERROR)
+                            .details(failure.stderr)
+                            .solution("Ensure every commit or range exists in the repository.")
+                            .withException(failure.e)
+            );
+        };
+    }
+
+    /**
+     * Returns a {@code git describe} command line only considering release tags with the given prefix, the closest
+     * glob equivalent of {@link Version.Serde#isRelease}: a 'v' followed by three components of nothing but digits.
+     */
+    private static String[] describeReleases(String tagPrefix, String... args) {
+        return concat(List.of("git", "describe",
+                "--match", tagPrefix + "v[0-9]*.[0-9]*.[0-9]*",
+                "--exclude", tagPrefix + "v*[!0-9.]*",
+                "--exclude", tagPrefix + "v*.*.*.*"), List.of(args));
+    }
+
+    private static String[] concat(List<String> first, List<String> second) {
+        List<String> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all.toArray(String[]::new);
+    }
+
+    private Map<Scope, Describe.Result> describeInProcess(List<Scope> scopes) {
+        Optional<GitDir> gitDir = GitDir.find(projectDir);
+        if (gitDir.isEmpty()) {
+            return Map.of();
+        }
+        try (GitReader reader = open(gitDir.get().dir()); var _ = Metrics.span(Metrics.Stage.WALK, "describe scopes")) {
+            return reader.describe(scopes).orElse(Map.of());
+        } catch (CatFile.TimedOutException e) {
+            throw timedOut(e.commandLine(), "", e.getCause());
+        } catch (IOException e) {
+            Metrics.count(Metrics.Counter.FALLBACKS);
+            LOGGER.debug("Falling back to the git CLI to describe scopes of {}: {}", projectDir, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private GitReader open(File gitDir) throws IOException {
+        try (var _ = Metrics.span(Metrics.Stage.PARSE, "open " + gitDir)) {
+            return catFiles == null ? GitReader.open(gitDir, timeout) : GitReader.open(gitDir, catFiles);
+        }
+    }
+
+    private static Optional<Version> toVersion(Describe.Result result) {
+        return toVersion(result, SERDE);
+    }
+
+    private static Optional<Version> toVersion(Describe.Result result, Version.Serde serde) {
+        return switch (result) {
+            case Describe.Result.Described described -> Optional.of(serde.parse(described.text()));
+            case Describe.Result.NoNames _ -> Optional.of(Version.initial());
+            case Describe.Result.Undescribable _ -> Optional.empty();
+        };
+    }
+
+    private Version describeWithCommand() {
+        return describeWithCommand(SERDE, describeReleases(""));
+    }
+
+    private Version describeWithCommand(Version.Serde serde, String... commandLine) {
+        return switch (runCommand(commandLine)) {
+            case Result.Success success -> serde.parse(success.stdout);
             case Result.Failure failure -> {
                 if (failure.stderr.trim().equals(NO_TAGS)) {
                     yield Version.initial();
                 }
-                var problemId = ProblemId.create("unable-to-describe-latest-tag", "Unable to read latest version tag.", GIT);
-                throw reporter.throwing(failure.e, problemId, spec -> spec
-                        .severity(Severity.ERROR)
-                        .details(failure.stderr)
-                        .solution("Ensure the repository exists and has at least one commit.")
-                        .withException(failure.e)
-                );
+                throw unableToDescribe(failure);
             }
         };
     }
 
+    private RuntimeException unableToDescribe(Result.Failure failure) {
+        var problemId = ProblemId.create("unable-to-describe-latest-tag", "Unable to read latest version tag.", GIT);
+        return reporter.throwing(failure.e, problemId, spec -> spec
+                .severity(Severity.ERROR)
+                .details(failure.stderr)
+                .solution("Ensure the repository exists and has at least one commit.")
+                .withException(failure.e)
+        );
+    }
+
+    /**
+     * Resolves the version of a single scope with the CLI, the tag comes from {@code git describe} limited to the
+     * scope's tags and the distance from the commits since then touching the scope's directory. Empty if the scope has
+     * no release tag yet.
+     */
+    private Optional<Version> describeWithCommand(Scope scope) {
+        // the whole repository is described as is, a directory from its last release tag on
+        String[] commandLine = scope.path().isEmpty()
+                ? describeReleases(scope.tagPrefix())
+                : describeReleases(scope.tagPrefix(), "--abbrev=0");
+        String tag = switch (runCommand(commandLine)) {
+            case Result.Success success -> success.stdout.trim();
+            case Result.Failure failure -> {
+                if (failure.stderr.trim().startsWith("fatal: No names found")) {
+                    yield null;
+                }
+                throw unableToDescribe(failure);
+            }
+        };
+        if (tag == null) {
+            return Optional.empty();
+        }
+        if (scope.path().isEmpty()) {
+            return Optional.of(scope.serde().parse(tag));
+        }
+        Version.Release release = (Version.Release) scope.serde().parse(tag);
+        int distance = Integer.parseInt(command("git", "rev-list", "--count", tag + "..HEAD", "--", ":/" + scope.path()).trim());
+        return Optional.of(distance == 0
+                ? release
+                : Version.preRelease(release, distance, command("git", "rev-parse", "--short=7", "HEAD").trim()));
+    }
+
+    private String command(String... commandLine) {
+        return switch (runCommand(commandLine)) {
+            case Result.Success success -> success.stdout;
+            case Result.Failure failure -> throw unableToDescribe(failure);
+        };
+    }
+
     public Git tagVersion(Version.Release version) {
-        return tagVersion(version, String.format("Release version: %s", SERDE.serialize(version)));
+        return tagVersion(version, releaseMessage(version, ""));
     }
 
     /**
      * Tags the current commit with the provided version, only release version are allowed.
      */
     public Git tagVersion(Version.Release version, String message) {
-        return switch (runCommand("git", "tag", "-a", SERDE.serialize(version), "-m", message)) {
+        return tagVersion(version, "", message);
+    }
+
+    /**
+     * Tags the current commit with the provided version of a monorepo scope, the tag is named with the given prefix.
+     */
+    public Git tagVersion(Version.Release version, String tagPrefix, String message) {
+        return switch (runCommand("git", "tag", "-a", Version.Serde.gitPorcelain(tagPrefix).serialize(version), "-m", message)) {
             case Result.Success _ -> this;
             case Result.Failure failure -> throw reporter.throwing(
                     failure.e,
@@ -74,6 +533,142 @@ public record Git(File projectDir, ExecOperations exec, ProblemReporter reporter
         };
     }
 
+    /**
+     * A release tag to create, named with the tag prefix of the monorepo scope it releases (empty for plain tags).
+     */
+    public record ReleaseTag(Version.Release version, String tagPrefix, String message) {
+
+        public String name() {
+            return Version.Serde.gitPorcelain(tagPrefix).serialize(version);
+        }
+
+        String ref() {
+            return "refs/tags/" + name();
+        }
+    }
+
+    /**
+     * Tags the current commit with all the provided releases at once, either every tag is created or none is.
+     *
+     * <p>The annotated tag objects are all written by one {@code git hash-object} and the refs all created in one
+     * {@code git update-ref --stdin} transaction, so releasing many scopes of a monorepo costs a handful of processes
+     * whatever their number. Every tag that can't be created (e.g. because it already exists) is reported as a problem
+     * of its own.
+     */
+    public Git tagVersions(List<ReleaseTag> tags) {
+        if (tags.isEmpty()) {
+            return this;
+        }
+        String head = tagCommand("HEAD", "git", "rev-parse", "--verify", "HEAD^{commit}").trim();
+        String tagger = tagCommand("HEAD", "git", "var", "GIT_COMMITTER_IDENT").trim();
+
+        List<String> refs = tags.stream().map(ReleaseTag::ref).toList();
+        List<String> existing = new ArrayList<>();
+        // full ref names as patterns only ever match the ref itself
+        String[] forEachRef = concat(List.of("git", "for-each-ref", "--format=%(refname)"), refs);
+        if (runCommand(existing::add, forEachRef) instanceof Result.Failure failure) {
+            throw unableToTag(failure.e, Map.of("HEAD", failure.stderr));
+        }
+        if (!existing.isEmpty()) {
+            Map<String, String> problems = new LinkedHashMap<>();
+            existing.forEach(ref -> problems.put(ref, "The tag already exists."));
+            throw unableToTag(new IllegalStateException("Release tags already exist: " + existing), problems);
+        }
+
+        List<String> ids = writeTags(head, tagger, tags);
+
+        StringBuilder updates = new StringBuilder();
+        for (int i = 0; i < tags.size(); i++) {
+            updates.append("create ").append(refs.get(i)).append(' ').append(ids.get(i)).append('\n');
+        }
+        InputStream stdin = new ByteArrayInputStream(updates.toString().getBytes(StandardCharsets.UTF_8));
+        return switch (runCommand(stdin, _ -> {}, "git", "update-ref", "--stdin")) {
+            case Result.Success _ -> this;
+            case Result.Failure failure -> {
+                // git stops at the first ref it can't lock, naming it, the transaction as a whole was rolled back
+                Map<String, String> problems = new LinkedHashMap<>();
+                refs.stream().filter(ref -> failure.stderr.contains("'" + ref + "'"))
+                        .forEach(ref -> problems.put(ref, failure.stderr));
+                if (problems.isEmpty()) {
+                    refs.forEach(ref -> problems.put(ref, failure.stderr));
+                }
+                throw unableToTag(failure.e, problems);
+            }
+        };
+    }
+
+    /**
+     * Writes the annotated tag objects of the given releases pointing at the given commit, returning their ids in order.
+     */
+    private List<String> writeTags(String commit, String tagger, List<ReleaseTag> tags) {
+        Path dir = null;
+        try {
+            dir = Files.createTempDirectory("auto-semver-tags");
+            StringBuilder paths = new StringBuilder();
+            for (int i = 0; i < tags.size(); i++) {
+                ReleaseTag tag = tags.get(i);
+                String message = tag.message().endsWith("\n") ? tag.message() : tag.message() + "\n";
+                Path file = Files.writeString(dir.resolve(i + ".tag"), String.format(
+                        "object %s\ntype commit\ntag %s\ntagger %s\n\n%s", commit, tag.name(), tagger, message));
+                paths.append(file.toAbsolutePath()).append('\n');
+            }
+
+            List<String> ids = new ArrayList<>();
+            InputStream stdin = new ByteArrayInputStream(paths.toString().getBytes(StandardCharsets.UTF_8));
+            return switch (runCommand(stdin, ids::add, "git", "hash-object", "-t", "tag", "-w", "--stdin-paths")) {
+                case Result.Success _ -> ids;
+                case Result.Failure failure -> throw unableToTag(failure.e, Map.of("HEAD", failure.stderr));
+            };
+        } catch (IOException e) {
+            throw unableToTag(e, Map.of("HEAD", "Unable to write the tag objects: " + e.getMessage()));
+        } finally {
+            if (dir != null) {
+                deleteQuietly(dir);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            LOGGER.debug("Unable to delete {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private String tagCommand(String ref, String... commandLine) {
+        return switch (runCommand(commandLine)) {
+            case Result.Success success -> success.stdout;
+            case Result.Failure failure -> throw unableToTag(failure.e, Map.of(ref, failure.stderr));
+        };
+    }
+
+    /**
+     * Reports one problem per ref that couldn't be created, along with the given details.
+     */
+    private RuntimeException unableToTag(Exception e, Map<String, String> details) {
+        ProblemId id = ProblemId.create("unable-to-tag-release", "Unable to tag release.", GIT);
+        List<Problem> problems = details.entrySet().stream()
+                .map(entry -> reporter.create(id, spec -> spec
+                        .contextualLabel("Unable to create " + entry.getKey())
+                        .severity(Severity.ERROR)
+                        .details(entry.getValue())
+                        .solution("Ensure none of the releases is already tagged, no tag was created.")
+                        .withException(e)))
+                .toList();
+        return reporter.throwing(e, problems);
+    }
+
+    /**
+     * Returns the default message of the release tag for the provided version.
+     */
+    static String releaseMessage(Version.Release version, String tagPrefix) {
+        return String.format("Release version: %s", Version.Serde.gitPorcelain(tagPrefix).serialize(version));
+    }
+
     private sealed interface Result {
         record Success(String stdout) implements Result {
         }
@@ -82,19 +677,46 @@ public record Git(File projectDir, ExecOperations exec, ProblemReporter reporter
         }
     }
 
+    /**
+     * Runs the given command capturing its (short) stdout.
+     */
     private Result runCommand(String... commandLine) {
-        var out = new ByteArrayOutputStream();
-        var err = new ByteArrayOutputStream();
-        try {
-            exec.exec(spec -> spec
-                    .commandLine(List.of(commandLine))
-                    .setStandardOutput(out)
-                    .setErrorOutput(err)
-                    .setWorkingDir(projectDir)
-            ).assertNormalExitValue();
-            return new Result.Success(out.toString(StandardCharsets.UTF_8));
-        } catch (ExecException e) {
-            return new Result.Failure(err.toString(StandardCharsets.UTF_8), e);
-        }
+        StringBuilder out = new StringBuilder();
+        Result result = runCommand(line -> {
+            if (out.length() < MAX_STDOUT) {
+                out.append(line).append('\n');
+            }
+        }, commandLine);
+        return result instanceof Result.Success ? new Result.Success(out.toString()) : result;
+    }
+
+    /**
+     * Runs the given command handing each line of its stdout to the consumer as it's printed, the returned success
+     * carries no output.
+     */
+    private Result runCommand(Consumer<String> stdout, String... commandLine) {
+        return runCommand(InputStream.nullInputStream(), stdout, commandLine);
+    }
+
+    private Result runCommand(InputStream stdin, Consumer<String> stdout, String... commandLine) {
+        return switch (GitProcess.run(exec, projectDir, timeout, List.of(commandLine), stdin, stdout)) {
+            case GitProcess.Result.Success _ -> new Result.Success("");
+            case GitProcess.Result.Failure failure -> new Result.Failure(failure.stderr(), failure.e());
+            case GitProcess.Result.TimedOut timedOut ->
+                    throw timedOut(String.join(" ", commandLine), timedOut.stderr(), timedOut.e());
+        };
+    }
+
+    private RuntimeException timedOut(String commandLine, String stderr, TimeoutException e) {
+        return reporter.throwing(
+                e,
+                ProblemId.create("git-command-timed-out", "Git command timed out.", GIT),
+                spec -> spec
+                        .severity(Severity.ERROR)
+                        .details(String.format("'%s' was stopped after %s.%n%s", commandLine, timeout, stderr))
+                        .solution("Check for another git process holding a lock on the repository (e.g. a stale "
+                                + "index.lock), or increase the timeout via autoSemver.timeout (in seconds).")
+                        .withException(e)
+        );
     }
 }
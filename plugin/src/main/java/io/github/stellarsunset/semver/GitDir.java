@@ -0,0 +1,162 @@
+package io.github.stellarsunset.semver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Handle on the resolved git directory (the one containing {@code HEAD} and the {@code index}) for a given project
+ * directory, along with the common directory holding {@code refs/}, {@code packed-refs} and {@code objects/} and the
+ * root of the work tree.
+ *
+ * <p>Discovery mirrors what the git CLI does when invoked from within the project directory, walking up the file tree
+ * until it finds either a {@code .git} directory, a {@code .git} file pointing at one (linked worktrees, submodules) or
+ * a directory that is itself a git directory. The common directory is the git directory itself unless it names another
+ * one in its {@code commondir} file, as the git directories of linked worktrees do.
+ *
+ * <p>Everything shared by all the worktrees of a repository (tags, objects, the shallow boundary) is read from the
+ * common directory, while HEAD and the index stay per worktree.
+ *
+ * @param dir       the git directory of the work tree
+ * @param commonDir the git directory shared by every worktree of the repository, {@code dir} unless it's a linked one
+ * @param workTree  the root of the work tree, {@code dir} itself for bare repositories
+ */
+public record GitDir(File dir, File commonDir, File workTree) {
+
+    private static final String GIT_FILE_PREFIX = "gitdir:";
+
+    /**
+     * Returns the git directory enclosing the provided starting directory, if there is one.
+     */
+    public static Optional<GitDir> find(File start) {
+        for (File current = canonical(start); current != null; current = current.getParentFile()) {
+            File dotGit = new File(current, ".git");
+            if (dotGit.isFile()) {
+                Optional<File> target = readGitFile(dotGit);
+                if (target.isPresent() && isGitDir(target.get())) {
+                    return Optional.of(new GitDir(target.get(), commonDir(target.get()), current));
+                }
+            }
+            if (isGitDir(dotGit)) {
+                return Optional.of(new GitDir(dotGit, commonDir(dotGit), current));
+            }
+            if (isGitDir(current)) {
+                return Optional.of(of(current));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the handle of the given git directory, following its {@code commondir} and {@code gitdir} files (or the
+     * {@code core.worktree} setting of submodules) to the common directory and work tree.
+     */
+    static GitDir of(File dir) {
+        File canonical = canonical(dir);
+        return new GitDir(canonical, commonDir(canonical), workTree(canonical));
+    }
+
+    /**
+     * Returns the common directory of the given git directory.
+     */
+    static File commonDir(File dir) {
+        return readPath(dir, new File(dir, "commondir")).orElse(dir);
+    }
+
+    /**
+     * Returns true if the git directory has a work tree checked out, false for bare repositories.
+     */
+    public boolean hasWorkTree() {
+        return !workTree.equals(dir);
+    }
+
+    private static File workTree(File dir) {
+        // a linked worktree records the .git file of its work tree
+        Optional<File> dotGit = readPath(dir, new File(dir, "gitdir"));
+        if (dotGit.isPresent()) {
+            return dotGit.get().getParentFile();
+        }
+        File config = new File(commonDir(dir), "config");
+        if (config.isFile()) {
+            try {
+                for (String line : Files.readAllLines(config.toPath(), StandardCharsets.UTF_8)) {
+                    int equals = line.indexOf('=');
+                    if (equals < 0) {
+                        continue;
+                    }
+                    String key = line.substring(0, equals).trim().toLowerCase(Locale.ROOT);
+                    String value = line.substring(equals + 1).trim();
+                    if (key.equals("worktree")) {
+                        return canonical(resolve(dir, unquote(value)));
+                    }
+                    if (key.equals("bare") && value.equalsIgnoreCase("true")) {
+                        return dir;
+                    }
+                }
+            } catch (IOException e) {
+                // unreadable config, assume the default layout like the rest of discovery
+            }
+        }
+        return dir.getName().equals(".git") ? dir.getParentFile() : dir;
+    }
+
+    /**
+     * Returns the git directory a {@code .git} file points at, from its single {@code gitdir: <path>} line.
+     */
+    private static Optional<File> readGitFile(File dotGit) {
+        try {
+            String content = Files.readString(dotGit.toPath(), StandardCharsets.UTF_8).trim();
+            if (!content.startsWith(GIT_FILE_PREFIX)) {
+                return Optional.empty();
+            }
+            String path = content.substring(GIT_FILE_PREFIX.length()).trim();
+            return Optional.of(canonical(resolve(dotGit.getParentFile(), path)));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the path held by the given file, relative ones being resolved against the provided directory.
+     */
+    private static Optional<File> readPath(File dir, File file) {
+        if (!file.isFile()) {
+            return Optional.empty();
+        }
+        try {
+            String path = Files.readString(file.toPath(), StandardCharsets.UTF_8).trim();
+            return path.isEmpty() ? Optional.empty() : Optional.of(canonical(resolve(dir, path)));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static File resolve(File dir, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(dir, path);
+    }
+
+    private static String unquote(String value) {
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")
+                ? value.substring(1, value.length() - 1)
+                : value;
+    }
+
+    private static boolean isGitDir(File dir) {
+        File commonDir = commonDir(dir);
+        return new File(dir, "HEAD").isFile()
+                && new File(commonDir, "objects").isDirectory()
+                && new File(commonDir, "refs").isDirectory();
+    }
+
+    static File canonical(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+}
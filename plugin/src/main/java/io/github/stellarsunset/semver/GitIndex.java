@@ -0,0 +1,224 @@
+package io.github.stellarsunset.semver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsed git index ({@code .git/index}), the staged content of every tracked file along with the stat data git
+ * recorded when it last saw that file unchanged in the work tree.
+ *
+ * <p>Versions 2 through 4 of the format are supported, as is the cache-tree extension recording the tree ids of
+ * directories whose entries haven't changed since the last commit. Split and sparse indexes, whose entries live partly
+ * elsewhere, are rejected. See <a href="https://git-scm.com/docs/gitformat-index">gitformat-index</a>.
+ *
+ * @param entries  the entries sorted by path as git writes them
+ * @param trees    tree ids of the directories (by path, empty for the root) the cache-tree extension knows to be valid
+ * @param modified last modification time of the index file itself, entries modified as late as that are "racy"
+ */
+record GitIndex(List<Entry> entries, Map<String, CachedTree> trees, Instant modified) {
+
+    private static final int SIGNATURE = 0x44495243; // "DIRC"
+
+    private static final int CACHE_TREE = 0x54524545; // "TREE"
+    private static final int SPLIT_INDEX = 0x6c696e6b; // "link"
+    private static final int SPARSE_DIRECTORIES = 0x73646972; // "sdir"
+
+    private static final int HASH_LENGTH = 20;
+
+    /**
+     * Width of the fixed part of an entry, up to and including its flags.
+     */
+    private static final int ENTRY_WIDTH = 62;
+
+    private static final int ASSUME_VALID = 0x8000;
+    private static final int EXTENDED = 0x4000;
+    private static final int SKIP_WORKTREE = 0x4000;
+    private static final int INTENT_TO_ADD = 0x2000;
+    private static final int NAME_MASK = 0x0fff;
+
+    /**
+     * A single staged file.
+     *
+     * @param mode  canonical git mode, e.g. {@code 0100644}, {@code 0120000} for a symlink or {@code 0160000} for a
+     *              submodule
+     * @param stage merge stage, non-zero while the path is conflicted
+     * @param size  size of the file on disk truncated to 32 bits, as git stores it
+     * @param inode inode of the file on disk truncated to 32 bits, as git stores it
+     */
+    record Entry(String path, int mode, String id, int stage, boolean assumeValid, boolean skipWorktree,
+                 boolean intentToAdd, long ctimeSeconds, int ctimeNanos, long mtimeSeconds, int mtimeNanos,
+                 long inode, long size) {
+    }
+
+    /**
+     * A directory of the cache-tree extension, along with the number of index entries the tree covers.
+     */
+    record CachedTree(String id, int entryCount) {
+    }
+
+    /**
+     * Reads the index file of the given git directory.
+     *
+     * @throws GitReader.UnsupportedRepositoryException if the index uses features this parser doesn't implement
+     */
+    static GitIndex read(File gitDir) throws IOException {
+        File file = new File(gitDir, "index");
+        Instant modified = Files.getLastModifiedTime(file.toPath()).toInstant();
+
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (data.limit() < 12 + HASH_LENGTH || data.getInt(0) != SIGNATURE) {
+            throw new IOException(String.format("File %s is not a git index.", file));
+        }
+        int version = data.getInt(4);
+        if (version < 2 || version > 4) {
+            throw new GitReader.UnsupportedRepositoryException(gitDir, "index version " + version);
+        }
+        int count = data.getInt(8);
+
+        List<Entry> entries = new ArrayList<>(count);
+        byte[] previous = new byte[0];
+        int position = 12;
+        for (int i = 0; i < count; i++) {
+            int flags = data.getShort(position + 60) & 0xffff;
+            int extended = (flags & EXTENDED) != 0 ? data.getShort(position + ENTRY_WIDTH) & 0xffff : 0;
+            int pathStart = position + ENTRY_WIDTH + ((flags & EXTENDED) != 0 ? 2 : 0);
+
+            byte[] path;
+            int next;
+            if (version == 4) {
+                // paths are prefix-compressed against the previous entry, stripping a varint number of its bytes
+                long[] strip = varint(data, pathStart);
+                int suffixStart = (int) strip[1];
+                int suffixEnd = nul(data, suffixStart);
+                int kept = previous.length - (int) strip[0];
+                path = new byte[kept + suffixEnd - suffixStart];
+                System.arraycopy(previous, 0, path, 0, kept);
+                data.get(suffixStart, path, kept, suffixEnd - suffixStart);
+                next = suffixEnd + 1;
+            } else {
+                int length = flags & NAME_MASK;
+                int pathEnd = length < NAME_MASK ? pathStart + length : nul(data, pathStart);
+                path = new byte[pathEnd - pathStart];
+                data.get(pathStart, path);
+                // entries are NUL-padded to a multiple of 8 bytes, with at least one NUL
+                next = position + ((pathEnd - position + 8) & ~7);
+            }
+
+            entries.add(new Entry(
+                    new String(path, StandardCharsets.UTF_8),
+                    data.getInt(position + 24),
+                    hex(data, position + 40),
+                    (flags >>> 12) & 0x3,
+                    (flags & ASSUME_VALID) != 0,
+                    (extended & SKIP_WORKTREE) != 0,
+                    (extended & INTENT_TO_ADD) != 0,
+                    data.getInt(position) & 0xffffffffL,
+                    data.getInt(position + 4),
+                    data.getInt(position + 8) & 0xffffffffL,
+                    data.getInt(position + 12),
+                    data.getInt(position + 20) & 0xffffffffL,
+                    data.getInt(position + 36) & 0xffffffffL
+            ));
+            previous = path;
+            position = next;
+        }
+
+        Map<String, CachedTree> trees = new HashMap<>();
+        int end = data.limit() - HASH_LENGTH;
+        while (position + 8 <= end) {
+            int signature = data.getInt(position);
+            int size = data.getInt(position + 4);
+            if (signature == SPLIT_INDEX || signature == SPARSE_DIRECTORIES) {
+                throw new GitReader.UnsupportedRepositoryException(gitDir,
+                        signature == SPLIT_INDEX ? "split index" : "sparse index");
+            }
+            if (signature == CACHE_TREE) {
+                cacheTree(data, position + 8, "", trees);
+            } else if (Character.isLowerCase((char) (signature >>> 24))) {
+                // extensions starting with a lowercase letter change the meaning of the entries and can't be ignored
+                throw new GitReader.UnsupportedRepositoryException(gitDir,
+                        "index extension " + string(data, position, position + 4));
+            }
+            position += 8 + size;
+        }
+
+        return new GitIndex(List.copyOf(entries), Map.copyOf(trees), modified);
+    }
+
+    /**
+     * Parses one (valid or not) cache-tree directory and, recursively, its subdirectories, returning the position after
+     * them. Directories invalidated by a change to one of their entries record a negative entry count and no id.
+     */
+    private static int cacheTree(ByteBuffer data, int position, String parent, Map<String, CachedTree> trees) {
+        int nameEnd = nul(data, position);
+        String name = string(data, position, nameEnd);
+        String path = parent.isEmpty() ? name : parent + "/" + name;
+
+        int space = indexOf(data, nameEnd + 1, (byte) ' ');
+        int newline = indexOf(data, space + 1, (byte) '\n');
+        int entryCount = Integer.parseInt(string(data, nameEnd + 1, space));
+        int subtrees = Integer.parseInt(string(data, space + 1, newline));
+
+        int next = newline + 1;
+        if (entryCount >= 0) {
+            trees.put(path, new CachedTree(hex(data, next), entryCount));
+            next += HASH_LENGTH;
+        }
+        for (int i = 0; i < subtrees; i++) {
+            next = cacheTree(data, next, path, trees);
+        }
+        return next;
+    }
+
+    /**
+     * Decodes git's offset varint, where each continuation byte also adds one to the value, returning the value and
+     * the position after it.
+     */
+    private static long[] varint(ByteBuffer data, int position) {
+        int c = data.get(position++) & 0xff;
+        long value = c & 0x7f;
+        while ((c & 0x80) != 0) {
+            c = data.get(position++) & 0xff;
+            value = ((value + 1) << 7) | (c & 0x7f);
+        }
+        return new long[]{value, position};
+    }
+
+    private static int nul(ByteBuffer data, int position) {
+        return indexOf(data, position, (byte) 0);
+    }
+
+    private static int indexOf(ByteBuffer data, int position, byte value) {
+        while (data.get(position) != value) {
+            position++;
+        }
+        return position;
+    }
+
+    private static String string(ByteBuffer data, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        data.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String hex(ByteBuffer data, int position) {
+        byte[] id = new byte[HASH_LENGTH];
+        data.get(position, id);
+        return HexFormat.of().formatHex(id);
+    }
+}
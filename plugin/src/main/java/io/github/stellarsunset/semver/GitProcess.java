@@ -0,0 +1,341 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.BuildCancelledException;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.process.ExecOperations;
+import org.gradle.process.ExecResult;
+import org.gradle.process.internal.ExecException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs a single git command through Gradle's {@link ExecOperations}, streaming its stdout line by line to the caller and
+ * keeping only a bounded tail of its stderr, so no output is ever buffered in full.
+ *
+ * <p>{@link ExecOperations} (the only way to start a process at configuration time the configuration cache accepts)
+ * offers no handle on the process it starts, so git is asked to report its own pid: with {@code GIT_TRACE2_EVENT}
+ * pointed at stderr its first trace event carries a session id ending in the pid, which is picked out of stderr (and
+ * left out of what's kept of it) to get the {@link ProcessHandle}. Without that event (a user-defined trace2 target,
+ * a git too old to write one or a process stuck before its first event) the process is looked up among the descendants
+ * of the JVM by its command line instead. It's stopped through that handle when it runs past its timeout or the calling
+ * thread is interrupted (e.g. by a cancelled build), asked to terminate first, which lets git remove its lock files,
+ * and only killed if it doesn't.
+ */
+final class GitProcess {
+
+    private static final Logger LOGGER = Logging.getLogger(GitProcess.class);
+
+    static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(2);
+
+    /**
+     * Longest line handed to the caller, git's output here is made of ids, ref names and versions.
+     */
+    static final int MAX_LINE = 64 * 1024;
+
+    /**
+     * Amount of stderr kept for error reporting, the end is where git prints its {@code fatal:} message.
+     */
+    static final int MAX_STDERR = 16 * 1024;
+
+    private static final Duration GRACE_PERIOD = Duration.ofSeconds(2);
+
+    private static final Executor VIRTUAL = command -> Thread.ofVirtual().name("auto-semver-git").start(command);
+
+    /**
+     * Prefix of the lines of git's trace2 event stream, see {@code Documentation/technical/api-trace2.txt}.
+     */
+    private static final String TRACE_EVENT = "{\"event\":";
+
+    /**
+     * Session id of a top-level git process, {@code <time>-H<host hash>-P<pid as hex>}. Nested git processes (e.g. the
+     * ones run by hooks) have their parent's session id and a slash in front of their own.
+     */
+    private static final Pattern SESSION_ID = Pattern.compile("\"sid\":\"[^\"/]*-P(?<pid>[0-9a-fA-F]+)\"");
+
+    private GitProcess() {
+    }
+
+    sealed interface Result {
+
+        record Success() implements Result {
+        }
+
+        record Failure(String stderr, int exitValue, Exception e) implements Result {
+        }
+
+        record TimedOut(String stderr, TimeoutException e) implements Result {
+        }
+    }
+
+    /**
+     * Runs the given git command line in the working directory, handing every line of its stdout to the consumer as
+     * it's written.
+     *
+     * @throws BuildCancelledException if the calling thread is interrupted while the command runs
+     * @throws GradleException if the command runs past the timeout and its process can't be found to stop it
+     */
+    static Result run(ExecOperations exec, File workingDir, Duration timeout, List<String> commandLine,
+                      Consumer<String> stdout) {
+        return run(exec, workingDir, timeout, commandLine, InputStream.nullInputStream(), stdout);
+    }
+
+    /**
+     * Same as {@link #run(ExecOperations, File, Duration, List, Consumer)}, feeding the given input to the command.
+     */
+    static Result run(ExecOperations exec, File workingDir, Duration timeout, List<String> commandLine,
+                      InputStream stdin, Consumer<String> stdout) {
+        Lines out = new Lines(stdout);
+        Tail err = new Tail(MAX_STDERR);
+        CompletableFuture<ProcessHandle> process = new CompletableFuture<>();
+        Lines stderr = new Lines(line -> {
+            if (!line.startsWith(TRACE_EVENT)) {
+                err.writeLine(line);
+            } else if (!process.isDone()) {
+                pid(line).ifPresent(pid -> ProcessHandle.of(pid).ifPresent(process::complete));
+            }
+        });
+
+        Metrics.count(Metrics.Counter.PROCESSES);
+        Metrics.Span span = Metrics.span(Metrics.Stage.SPAWN, String.join(" ", commandLine.subList(1, commandLine.size())));
+        Instant launched = Instant.now();
+        CompletableFuture<ExecResult> running = CompletableFuture.supplyAsync(() -> exec.exec(spec -> {
+            spec.commandLine(commandLine)
+                    .setStandardInput(stdin)
+                    .setStandardOutput(out)
+                    .setErrorOutput(stderr)
+                    .setWorkingDir(workingDir);
+            // a trace2 target the user set up is left alone, the process is then found by its command line
+            if (!spec.getEnvironment().containsKey("GIT_TRACE2_EVENT")) {
+                spec.environment("GIT_TRACE2_EVENT", "1");
+            }
+            spec.setIgnoreExitValue(true);
+        }), VIRTUAL);
+        try {
+            ExecResult result = running.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            out.finish();
+            stderr.finish();
+            try {
+                result.assertNormalExitValue();
+                return new Result.Success();
+            } catch (ExecException e) {
+                return new Result.Failure(err.toString(), result.getExitValue(), e);
+            }
+        } catch (ExecutionException e) {
+            stderr.finish();
+            if (e.getCause() instanceof ExecException failure) {
+                // the process couldn't be started at all (e.g. no git on the path)
+                return new Result.Failure(err.toString(), -1, failure);
+            }
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            if (!stop(process, commandLine, launched)) {
+                throw new GradleException(String.format("'%s' did not finish within %s and its process couldn't be "
+                                + "found to stop it, it may still be running.", String.join(" ", commandLine), timeout), e);
+            }
+            await(running);
+            stderr.finish();
+            return new Result.TimedOut(err.toString(), new TimeoutException(
+                    String.format("'%s' did not finish within %s.", String.join(" ", commandLine), timeout)));
+        } catch (InterruptedException e) {
+            if (!stop(process, commandLine, launched)) {
+                LOGGER.warn("Unable to find the process of '{}' to stop it.", String.join(" ", commandLine));
+            }
+            Thread.currentThread().interrupt();
+            throw new BuildCancelledException(String.format("Cancelled '%s'.", String.join(" ", commandLine)), e);
+        } finally {
+            span.close();
+        }
+    }
+
+    /**
+     * Returns the pid of the top-level git process from one of its trace events, empty for those of nested processes.
+     */
+    static Optional<Long> pid(String event) {
+        Matcher matcher = SESSION_ID.matcher(event);
+        return matcher.find() ? Optional.of(Long.parseLong(matcher.group("pid"), 16)) : Optional.empty();
+    }
+
+    /**
+     * Returns the process running the given command line among the descendants of the JVM, the earliest one launched
+     * since the given instant should the same command run more than once.
+     */
+    static Optional<ProcessHandle> find(List<String> commandLine, Instant launched) {
+        String executable = new File(commandLine.getFirst()).getName();
+        List<String> arguments = commandLine.subList(1, commandLine.size());
+        // start times are only known to the clock tick, so allow for some rounding
+        Instant since = launched.minusSeconds(1);
+        return ProcessHandle.current().descendants()
+                .filter(process -> process.info().command()
+                        .map(command -> new File(command).getName().equals(executable))
+                        .orElse(false))
+                .filter(process -> process.info().arguments().map(List::of).orElse(List.of()).equals(arguments))
+                .filter(process -> process.info().startInstant().map(start -> !start.isBefore(since)).orElse(true))
+                .min(Comparator.comparing(process -> process.info().startInstant().orElse(Instant.MAX)));
+    }
+
+    /**
+     * Terminates the process along with anything it started (e.g. hooks or the shell of an alias), false if it couldn't
+     * be found.
+     */
+    private static boolean stop(CompletableFuture<ProcessHandle> handle, List<String> commandLine, Instant launched) {
+        ProcessHandle process;
+        try {
+            // a process stopped right after it started may not have written its first event yet
+            process = handle.get(GRACE_PERIOD.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process = handle.getNow(null);
+        } catch (ExecutionException | TimeoutException e) {
+            process = null;
+        }
+        if (process == null) {
+            process = find(commandLine, launched).orElse(null);
+        }
+        if (process == null) {
+            return false;
+        }
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+        try {
+            process.onExit().get(GRACE_PERIOD.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // fall through to killing it
+        }
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+        return true;
+    }
+
+    /**
+     * Gives Gradle a moment to notice the stopped process.
+     */
+    private static void await(CompletableFuture<ExecResult> running) {
+        try {
+            running.get(GRACE_PERIOD.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // expected, the process was stopped
+        }
+    }
+
+    /**
+     * Splits the bytes written to it into lines, lines longer than {@link #MAX_LINE} are cut short.
+     */
+    static final class Lines extends OutputStream {
+
+        private final Consumer<String> consumer;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        Lines(Consumer<String> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (b == '\n') {
+                emit();
+            } else if (line.size() < MAX_LINE) {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int start = off;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    append(b, start, i - start);
+                    emit();
+                    start = i + 1;
+                }
+            }
+            append(b, start, off + len - start);
+        }
+
+        /**
+         * Hands over the last line if the output didn't end with a line terminator.
+         */
+        synchronized void finish() {
+            if (line.size() > 0) {
+                emit();
+            }
+        }
+
+        private void append(byte[] b, int off, int len) {
+            line.write(b, off, Math.min(len, MAX_LINE - line.size()));
+        }
+
+        private void emit() {
+            String text = line.toString(StandardCharsets.UTF_8);
+            line.reset();
+            consumer.accept(text.endsWith("\r") ? text.substring(0, text.length() - 1) : text);
+        }
+    }
+
+    /**
+     * Keeps the last bytes written to it, up to the given limit.
+     */
+    static final class Tail extends OutputStream {
+
+        private final byte[] buffer;
+        private long written;
+
+        Tail(int limit) {
+            this.buffer = new byte[limit];
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            buffer[(int) (written++ % buffer.length)] = (byte) b;
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+
+        /**
+         * Keeps the given line of output along with its line terminator.
+         */
+        synchronized void writeLine(String line) {
+            byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+            write(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public synchronized String toString() {
+            if (written <= buffer.length) {
+                return new String(buffer, 0, (int) written, StandardCharsets.UTF_8);
+            }
+            int start = (int) (written % buffer.length);
+            byte[] ordered = new byte[buffer.length];
+            System.arraycopy(buffer, start, ordered, 0, buffer.length - start);
+            System.arraycopy(buffer, 0, ordered, buffer.length - start, start);
+            return new String(ordered, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package io.github.stellarsunset.semver;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Pure-Java engine answering the questions {@link Git} needs from a repository by reading the files under the git
+ * directory directly, without forking a {@code git} process.
+ *
+ * <p>Only the common on-disk layout is supported (files ref backend, SHA-1 objects, no grafts or replace refs).
+ * Anything else is rejected at {@link #open(File)} so callers can fall back to the git CLI. Objects that aren't in the
+ * repository's own object files (e.g. ones from an alternate object store) are read through a {@link CatFile}
+ * co-process rather than forking git for every lookup.
+ */
+final class GitReader implements Closeable {
+
+    private static final Version.Serde RELEASES = Version.Serde.gitPorcelain();
+
+    private final File gitDir;
+    private final Refs refs;
+    private final FileObjectDatabase files;
+    private final ObjectDatabase objects;
+    private final Closeable catFile;
+
+    private GitReader(File gitDir, Refs refs, FileObjectDatabase files, ObjectDatabase objects, Closeable catFile) {
+        this.gitDir = gitDir;
+        this.refs = refs;
+        this.files = files;
+        this.objects = objects;
+        this.catFile = catFile;
+    }
+
+    /**
+     * Opens a reader on the given git directory, with a {@link CatFile} of its own stopped when the reader is closed.
+     *
+     * @throws UnsupportedRepositoryException if the repository uses features this reader doesn't implement
+     */
+    static GitReader open(File gitDir) throws IOException {
+        return open(gitDir, GitProcess.DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Same as {@link #open(File)}, with the requests to the reader's {@link CatFile} failing after the given timeout.
+     *
+     * @throws UnsupportedRepositoryException if the repository uses features this reader doesn't implement
+     */
+    static GitReader open(File gitDir, Duration timeout) throws IOException {
+        return open(gitDir, null, timeout);
+    }
+
+    /**
+     * Opens a reader on the given git directory sharing the {@link CatFile} of the provided pool, which stays running
+     * until the pool itself is closed.
+     *
+     * @throws UnsupportedRepositoryException if the repository uses features this reader doesn't implement
+     */
+    static GitReader open(File gitDir, CatFile.Pool pool) throws IOException {
+        return open(gitDir, pool, null);
+    }
+
+    private static GitReader open(File gitDir, CatFile.Pool pool, Duration timeout) throws IOException {
+        // objects, tags and settings live in the common directory shared by all the worktrees of the repository
+        Refs refs = new Refs(gitDir);
+        File commonDir = refs.commonDir();
+        checkSupported(commonDir);
+
+        if (refs.hasReplaceRefs()) {
+            throw new UnsupportedRepositoryException(gitDir, "replace refs");
+        }
+        File objectsDir = new File(commonDir, "objects");
+        FileObjectDatabase files = FileObjectDatabase.open(objectsDir);
+        CatFile catFile = pool == null ? CatFile.of(commonDir, timeout) : pool.of(commonDir);
+        ObjectDatabase objects = files.orElse(catFile);
+        return new GitReader(gitDir, refs, files, withCommitGraph(commonDir, objectsDir, objects),
+                pool == null ? catFile : () -> {});
+    }
+
+    /**
+     * Layers the repository's commit-graph over the object files when there is a usable one. Like git, the graph is
+     * ignored in shallow clones whose cut-off parents it may still list.
+     */
+    private static ObjectDatabase withCommitGraph(File commonDir, File objectsDir, ObjectDatabase objects) {
+        if (new File(commonDir, "shallow").exists()) {
+            return objects;
+        }
+        try {
+            return CommitGraph.open(objectsDir, objects);
+        } catch (IOException e) {
+            // the graph is purely an accelerator, every commit in it can still be read from the object files
+            return objects;
+        }
+    }
+
+    /**
+     * Describes HEAD the way {@code git describe} would, empty if HEAD doesn't point at a commit yet.
+     */
+    Optional<Describe.Result> describe() throws IOException {
+        Optional<String> head = refs.head();
+        if (head.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(Describe.describe(objects, head.get(), releaseTags(), shallow()));
+    }
+
+    /**
+     * Describes HEAD incrementally from a result computed for one of its ancestors with the same tags, see {@link
+     * Describe#describeSince}. Empty if HEAD doesn't point at a commit or a full {@link #describe()} is required.
+     */
+    Optional<Describe.Result> describeSince(Describe.Result.Described anchor) throws IOException {
+        Optional<String> head = refs.head();
+        if (head.isEmpty()) {
+            return Optional.empty();
+        }
+        return Describe.describeSince(objects, head.get(), anchor, releaseTags(), shallow());
+    }
+
+    /**
+     * Describes each of the given commits as if it were HEAD, see {@link Describe#describeAll}.
+     */
+    Map<String, Describe.Result> describeAll(List<String> commits) throws IOException {
+        return Describe.describeAll(objects, commits, releaseTags(), shallow());
+    }
+
+    /**
+     * Describes HEAD for each of the given monorepo scopes in one walk of history, see {@link ScopedDescribe}. Empty if
+     * HEAD doesn't point at a commit yet.
+     */
+    Optional<Map<Git.Scope, Describe.Result>> describe(List<Git.Scope> scopes) throws IOException {
+        Optional<String> head = refs.head();
+        if (head.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(ScopedDescribe.describe(objects, head.get(), refs.tags(), shallow(), scopes));
+    }
+
+    /**
+     * Checks the work tree against HEAD, see {@link WorkTree}. Unknown if HEAD doesn't point at a commit yet.
+     */
+    WorkTree.Status status() throws IOException {
+        Optional<String> head = refs.head();
+        if (head.isEmpty()) {
+            return WorkTree.Status.UNKNOWN;
+        }
+        return WorkTree.status(objects, head.get(), gitDir);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (catFile) {
+            files.close();
+        }
+    }
+
+    /**
+     * Returns the tags named like releases ({@code v1.2.3}), the only ones a version can be described from. Deployment
+     * markers, nightlies and the like are dropped before describing, so they're never peeled, never take up one of the
+     * candidates of the walk and never end up as an unparseable version.
+     */
+    private SortedMap<String, Refs.Ref> releaseTags() throws IOException {
+        SortedMap<String, Refs.Ref> tags = refs.tags();
+        tags.values().removeIf(ref -> !RELEASES.isRelease(ref.name().substring("refs/tags/".length())));
+        return tags;
+    }
+
+    private Set<String> shallow() throws IOException {
+        File file = new File(refs.commonDir(), "shallow");
+        Set<String> shallow = new HashSet<>();
+        if (file.isFile()) {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII)) {
+                if (!line.isBlank()) {
+                    shallow.add(line.trim());
+                }
+            }
+        }
+        return shallow;
+    }
+
+    private static void checkSupported(File commonDir) throws IOException {
+        if (new File(commonDir, "info/grafts").exists()) {
+            throw new UnsupportedRepositoryException(commonDir, "grafts");
+        }
+        File config = new File(commonDir, "config");
+        if (config.isFile()) {
+            // extensions.objectFormat and extensions.refStorage are the only ones changing the on-disk formats we read
+            for (String line : Files.readAllLines(config.toPath(), StandardCharsets.UTF_8)) {
+                String setting = line.replace(" ", "").replace("\t", "").toLowerCase(Locale.ROOT);
+                if (setting.startsWith("objectformat=") && !setting.equals("objectformat=sha1")) {
+                    throw new UnsupportedRepositoryException(commonDir, setting);
+                }
+                if (setting.startsWith("refstorage=") && !setting.equals("refstorage=files")) {
+                    throw new UnsupportedRepositoryException(commonDir, setting);
+                }
+            }
+        }
+    }
+
+    static final class UnsupportedRepositoryException extends IOException {
+        UnsupportedRepositoryException(File gitDir, String feature) {
+            super(String.format("Repository %s uses unsupported feature: %s", gitDir, feature));
+        }
+    }
+}
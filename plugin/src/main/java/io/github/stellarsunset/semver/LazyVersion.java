@@ -0,0 +1,32 @@
+package io.github.stellarsunset.semver;
+
+import com.google.common.base.Suppliers;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.function.Supplier;
+
+/**
+ * Deferred {@code project.version}, resolved on the first call to {@link #toString()} (which is how Gradle and other
+ * plugins consume the version) and memoized from then on.
+ *
+ * <p>Java serialization (e.g. when used as a task input property) writes the resolved string in its place.
+ */
+final class LazyVersion implements Serializable {
+
+    private final transient Supplier<String> version;
+
+    LazyVersion(Supplier<String> version) {
+        this.version = Suppliers.memoize(version::get);
+    }
+
+    @Override
+    public String toString() {
+        return version.get();
+    }
+
+    @Serial
+    private Object writeReplace() {
+        return toString();
+    }
+}
@@ -0,0 +1,195 @@
+package io.github.stellarsunset.semver;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings and counters of the work done to resolve versions, collected for the whole build and drained by
+ * {@link VersionService} once the build finishes (logged, and written as a report when asked for).
+ *
+ * <p>Recording is always on, a span is two {@link System#nanoTime()} calls and a queue insertion, and the daemon only
+ * ever holds the events of the build in progress (with a hard cap in case nothing drains them).
+ */
+final class Metrics {
+
+    /**
+     * Most events held at once, a build resolving versions records a few dozen.
+     */
+    private static final int MAX_EVENTS = 10_000;
+
+    /**
+     * Shared time origin of the events, so spans recorded on different threads line up in the trace.
+     */
+    private static final long ORIGIN = System.nanoTime();
+
+    private static final ConcurrentLinkedQueue<Event> EVENTS = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger SIZE = new AtomicInteger();
+
+    private static final Map<Counter, LongAdder> COUNTERS = new EnumMap<>(Counter.class);
+
+    static {
+        for (Counter counter : Counter.values()) {
+            COUNTERS.put(counter, new LongAdder());
+        }
+    }
+
+    private Metrics() {
+    }
+
+    enum Stage {
+        /**
+         * Resolving the version of a repository (or of all the scopes of a monorepo) end to end.
+         */
+        RESOLVE,
+        /**
+         * Looking up (and writing) the persistent {@link VersionCache} entry.
+         */
+        CACHE,
+        /**
+         * Opening the repository in-process, parsing its config, refs, pack indexes and commit-graph.
+         */
+        PARSE,
+        /**
+         * Walking the commit history in-process.
+         */
+        WALK,
+        /**
+         * Running a git process, from spawn to exit.
+         */
+        SPAWN,
+        /**
+         * Comparing the work tree to HEAD.
+         */
+        STATUS,
+        /**
+         * Fetching more history of a shallow clone.
+         */
+        FETCH
+    }
+
+    enum Counter {
+        PROCESSES, CACHE_HITS, CACHE_MISSES, CACHE_INCREMENTAL, FALLBACKS, DROPPED_EVENTS
+    }
+
+    /**
+     * A completed span, times in nanoseconds since {@link #ORIGIN}.
+     */
+    record Event(Stage stage, String name, long start, long duration, long thread) {
+    }
+
+    /**
+     * Everything recorded since the previous drain.
+     */
+    record Snapshot(List<Event> events, Map<Counter, Long> counters) {
+
+        /**
+         * Returns the total time spent in each stage. Stages nest (resolving a version spans everything else), so the
+         * totals don't add up.
+         */
+        Map<Stage, Long> totals() {
+            Map<Stage, Long> totals = new EnumMap<>(Stage.class);
+            events.forEach(event -> totals.merge(event.stage(), event.duration(), Long::sum));
+            return totals;
+        }
+
+        boolean isEmpty() {
+            return events.isEmpty() && counters.values().stream().allMatch(count -> count == 0);
+        }
+
+        /**
+         * Writes the snapshot in the Chrome trace event format, loadable in {@code chrome://tracing} or Perfetto, with
+         * the per-stage totals and the counters alongside the events for anything reading it as plain JSON. Names are
+         * paths and git arguments, only quotes and backslashes need escaping. Virtual threads are unnamed, so threads
+         * are told apart by id.
+         */
+        void write(Path file) throws IOException {
+            Files.createDirectories(file.getParent());
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write("{\n  \"totalsMillis\": {");
+                String separator = "";
+                for (Map.Entry<Stage, Long> total : totals().entrySet()) {
+                    writer.write(String.format(Locale.ROOT, "%s\"%s\": %.3f", separator, key(total.getKey()),
+                            total.getValue() / 1e6));
+                    separator = ", ";
+                }
+                writer.write("},\n  \"counters\": {");
+                separator = "";
+                for (Map.Entry<Counter, Long> counter : counters.entrySet()) {
+                    writer.write(String.format("%s\"%s\": %d", separator, key(counter.getKey()), counter.getValue()));
+                    separator = ", ";
+                }
+                writer.write("},\n  \"displayTimeUnit\": \"ms\",\n  \"traceEvents\": [");
+                separator = "\n";
+                for (Event event : events) {
+                    writer.write(String.format(Locale.ROOT, "%s    {\"name\": \"%s\", \"cat\": \"%s\", \"ph\": \"X\", "
+                                    + "\"ts\": %.3f, \"dur\": %.3f, \"pid\": 1, \"tid\": %d}",
+                            separator, escape(event.name()), key(event.stage()), event.start() / 1e3,
+                            event.duration() / 1e3, event.thread()));
+                    separator = ",\n";
+                }
+                writer.write("\n  ]\n}\n");
+            }
+        }
+
+        private static String key(Enum<?> value) {
+            return value.name().toLowerCase(Locale.ROOT);
+        }
+
+        private static String escape(String value) {
+            return value.replace("\\", "\\\\").replace("\"", "\\\"");
+        }
+    }
+
+    /**
+     * A span in progress, recorded when closed.
+     */
+    record Span(Stage stage, String name, long start) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            long end = System.nanoTime();
+            if (SIZE.incrementAndGet() > MAX_EVENTS) {
+                SIZE.decrementAndGet();
+                count(Counter.DROPPED_EVENTS);
+                return;
+            }
+            EVENTS.add(new Event(stage, name, start - ORIGIN, end - start, Thread.currentThread().threadId()));
+        }
+    }
+
+    /**
+     * Starts a span of the given stage, to be closed (with try-with-resources) once the work is done.
+     */
+    static Span span(Stage stage, String name) {
+        return new Span(stage, name, System.nanoTime());
+    }
+
+    static void count(Counter counter) {
+        COUNTERS.get(counter).increment();
+    }
+
+    /**
+     * Returns and clears everything recorded so far.
+     */
+    static Snapshot drain() {
+        List<Event> events = new ArrayList<>();
+        for (Event event; (event = EVENTS.poll()) != null; ) {
+            SIZE.decrementAndGet();
+            events.add(event);
+        }
+        Map<Counter, Long> counters = new EnumMap<>(Counter.class);
+        COUNTERS.forEach((counter, adder) -> counters.put(counter, adder.sumThenReset()));
+        return new Snapshot(List.copyOf(events), counters);
+    }
+}
@@ -0,0 +1,287 @@
+package io.github.stellarsunset.semver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only view of the objects in a git repository, exposing just enough of the git object model to resolve versions
+ * in-process (commits and annotated tags).
+ *
+ * <p>Object ids are passed around as lower-case 40 character hex strings, the same form git prints them in.
+ */
+interface ObjectDatabase {
+
+    /**
+     * Returns the raw (inflated and un-deltified) contents of the object with the given id.
+     *
+     * @throws MissingObjectException if the object doesn't exist in the database
+     */
+    RawObject read(String id) throws IOException;
+
+    /**
+     * Returns the raw contents of all the objects with the given ids, in order. Databases with a per-request overhead
+     * override this to batch the requests.
+     *
+     * @throws MissingObjectException if any of the objects doesn't exist in the database
+     */
+    default List<RawObject> readAll(List<String> ids) throws IOException {
+        List<RawObject> objects = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            objects.add(read(id));
+        }
+        return objects;
+    }
+
+    /**
+     * Returns a database reading objects from this one, falling back to the provided database for any object this one
+     * doesn't contain.
+     */
+    default ObjectDatabase orElse(ObjectDatabase fallback) {
+        ObjectDatabase primary = this;
+        return new ObjectDatabase() {
+            @Override
+            public RawObject read(String id) throws IOException {
+                try {
+                    return primary.read(id);
+                } catch (MissingObjectException e) {
+                    return fallback.read(id);
+                }
+            }
+
+            @Override
+            public List<RawObject> readAll(List<String> ids) throws IOException {
+                List<RawObject> objects = new ArrayList<>(ids.size());
+                List<Integer> missing = new ArrayList<>();
+                for (String id : ids) {
+                    try {
+                        objects.add(primary.read(id));
+                    } catch (MissingObjectException e) {
+                        objects.add(null);
+                        missing.add(objects.size() - 1);
+                    }
+                }
+                if (!missing.isEmpty()) {
+                    List<RawObject> found = fallback.readAll(missing.stream().map(ids::get).toList());
+                    for (int i = 0; i < missing.size(); i++) {
+                        objects.set(missing.get(i), found.get(i));
+                    }
+                }
+                return objects;
+            }
+        };
+    }
+
+    /**
+     * Reads and parses the commit with the given id.
+     */
+    default Commit commit(String id) throws IOException {
+        RawObject object = read(id);
+        if (object.type() != Type.COMMIT) {
+            throw new IOException(String.format("Object %s is a %s, not a commit.", id, object.type()));
+        }
+        return Commit.parse(id, object.data());
+    }
+
+    /**
+     * Reads and parses the tree with the given id.
+     */
+    default Tree tree(String id) throws IOException {
+        RawObject object = read(id);
+        if (object.type() != Type.TREE) {
+            throw new IOException(String.format("Object %s is a %s, not a tree.", id, object.type()));
+        }
+        return Tree.parse(id, object.data());
+    }
+
+    /**
+     * Reads and parses the annotated tag with the given id.
+     */
+    default Tag tag(String id) throws IOException {
+        RawObject object = read(id);
+        if (object.type() != Type.TAG) {
+            throw new IOException(String.format("Object %s is a %s, not a tag.", id, object.type()));
+        }
+        return Tag.parse(id, object.data());
+    }
+
+    enum Type {
+        COMMIT, TREE, BLOB, TAG;
+
+        /**
+         * Returns the type for the numeric code used in pack files.
+         */
+        static Type fromPackCode(int code) throws IOException {
+            return switch (code) {
+                case 1 -> COMMIT;
+                case 2 -> TREE;
+                case 3 -> BLOB;
+                case 4 -> TAG;
+                default -> throw new IOException(String.format("Unsupported pack object type: %s", code));
+            };
+        }
+
+        /**
+         * Returns the type for the name used in loose object headers and tag objects.
+         */
+        static Type fromName(String name) throws IOException {
+            return switch (name) {
+                case "commit" -> COMMIT;
+                case "tree" -> TREE;
+                case "blob" -> BLOB;
+                case "tag" -> TAG;
+                default -> throw new IOException(String.format("Unsupported object type: %s", name));
+            };
+        }
+    }
+
+    record RawObject(Type type, byte[] data) {
+    }
+
+    /**
+     * A parsed commit, the time is the committer timestamp in epoch seconds which is what git orders history walks by.
+     *
+     * <p>The generation is the commit's topological level (one more than the highest level of its parents) when known
+     * from a {@link CommitGraph}, otherwise {@link #GENERATION_INFINITY}. A commit can only ever be an ancestor of
+     * commits with a strictly higher generation.
+     */
+    record Commit(String id, String tree, List<String> parents, long time, int generation) {
+
+        static final int GENERATION_INFINITY = Integer.MAX_VALUE;
+
+        static Commit parse(String id, byte[] data) {
+            String tree = null;
+            List<String> parents = new ArrayList<>(2);
+            long time = 0;
+
+            int position = 0;
+            while (position < data.length && data[position] != '\n') {
+                int end = lineEnd(data, position);
+                if (startsWith(data, position, "tree ")) {
+                    tree = new String(data, position + 5, 40, StandardCharsets.US_ASCII);
+                } else if (startsWith(data, position, "parent ")) {
+                    parents.add(new String(data, position + 7, 40, StandardCharsets.US_ASCII));
+                } else if (startsWith(data, position, "committer ")) {
+                    time = identityTime(data, position, end);
+                }
+                position = end + 1;
+            }
+            return new Commit(id, tree, List.copyOf(parents), time, GENERATION_INFINITY);
+        }
+    }
+
+    /**
+     * A parsed annotated tag, the time is the tagger timestamp in epoch seconds (or zero for tags without a tagger).
+     */
+    record Tag(String id, String object, Type type, String name, long time) {
+
+        static Tag parse(String id, byte[] data) throws IOException {
+            String object = null;
+            Type type = null;
+            String name = null;
+            long time = 0;
+
+            int position = 0;
+            while (position < data.length && data[position] != '\n') {
+                int end = lineEnd(data, position);
+                if (startsWith(data, position, "object ")) {
+                    object = new String(data, position + 7, 40, StandardCharsets.US_ASCII);
+                } else if (startsWith(data, position, "type ")) {
+                    type = Type.fromName(new String(data, position + 5, end - position - 5, StandardCharsets.US_ASCII));
+                } else if (startsWith(data, position, "tag ")) {
+                    name = new String(data, position + 4, end - position - 4, StandardCharsets.UTF_8);
+                } else if (startsWith(data, position, "tagger ")) {
+                    time = identityTime(data, position, end);
+                }
+                position = end + 1;
+            }
+            if (object == null || type == null) {
+                throw new IOException(String.format("Malformed tag object %s.", id));
+            }
+            return new Tag(id, object, type, name, time);
+        }
+    }
+
+    /**
+     * A parsed tree, mapping the name of each entry to the id of the object it points at and to its mode (e.g.
+     * {@code 0100644} for a regular file, {@code 040000} for a subtree).
+     */
+    record Tree(String id, Map<String, String> entries, Map<String, Integer> modes) {
+
+        static Tree parse(String id, byte[] data) throws IOException {
+            Map<String, String> entries = new HashMap<>();
+            Map<String, Integer> modes = new HashMap<>();
+            int position = 0;
+            while (position < data.length) {
+                int space = indexOf(data, position, (byte) ' ');
+                int nul = indexOf(data, space + 1, (byte) 0);
+                if (space < 0 || nul < 0 || nul + 21 > data.length) {
+                    throw new IOException(String.format("Malformed tree object %s.", id));
+                }
+                String name = new String(data, space + 1, nul - space - 1, StandardCharsets.UTF_8);
+                entries.put(name, HexFormat.of().formatHex(data, nul + 1, nul + 21));
+                modes.put(name, Integer.parseInt(new String(data, position, space - position, StandardCharsets.US_ASCII), 8));
+                position = nul + 21;
+            }
+            return new Tree(id, entries, modes);
+        }
+    }
+
+    final class MissingObjectException extends IOException {
+        MissingObjectException(String id) {
+            super(String.format("Missing object %s.", id));
+        }
+    }
+
+    private static int indexOf(byte[] data, int from, byte target) {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lineEnd(byte[] data, int from) {
+        int end = from;
+        while (end < data.length && data[end] != '\n') {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean startsWith(byte[] data, int from, String prefix) {
+        if (from + prefix.length() > data.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (data[from + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the epoch seconds out of an identity line of the form {@code committer Name <email> 1700000000 +0000}.
+     */
+    private static long identityTime(byte[] data, int from, int end) {
+        int close = end - 1;
+        while (close > from && data[close] != '>') {
+            close--;
+        }
+        long time = 0;
+        int position = close + 1;
+        while (position < end && data[position] == ' ') {
+            position++;
+        }
+        while (position < end && data[position] >= '0' && data[position] <= '9') {
+            time = time * 10 + (data[position++] - '0');
+        }
+        return time;
+    }
+}
@@ -0,0 +1,279 @@
+package io.github.stellarsunset.semver;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HexFormat;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reader for a single git pack file and its accompanying {@code .idx} index (versions 1 and 2).
+ *
+ * <p>The index is memory-mapped for the binary search, the pack itself is read with positional reads so packs larger
+ * than the 2GB mapping limit still work. See <a href="https://git-scm.com/docs/gitformat-pack">gitformat-pack</a>.
+ *
+ * <p>The inflater and read buffers are reused across objects, so a pack file must only be read from one thread at a
+ * time.
+ */
+final class PackFile implements Closeable {
+
+    private static final int IDX_V2_MAGIC = 0xff744f63;
+
+    private static final int OFS_DELTA = 6;
+    private static final int REF_DELTA = 7;
+
+    private final File packFile;
+    private final FileChannel pack;
+    private final ByteBuffer idx;
+    private final int version;
+    private final int count;
+
+    private final Inflater inflater = new Inflater();
+    private final ByteBuffer header = ByteBuffer.allocate(32);
+    private final ByteBuffer input = ByteBuffer.allocate(8192);
+
+    private PackFile(File packFile, FileChannel pack, ByteBuffer idx) throws IOException {
+        this.packFile = packFile;
+        this.pack = pack;
+        this.idx = idx;
+        this.version = idx.getInt(0) == IDX_V2_MAGIC ? idx.getInt(4) : 1;
+        if (version != 1 && version != 2) {
+            throw new IOException(String.format("Unsupported pack index version %s for %s.", version, packFile));
+        }
+        this.count = idx.getInt(fanoutStart() + 255 * 4);
+    }
+
+    /**
+     * Opens the pack with the given {@code .idx} file, the pack is expected to sit next to it.
+     */
+    static PackFile open(File idxFile) throws IOException {
+        String name = idxFile.getName();
+        File packFile = new File(idxFile.getParentFile(), name.substring(0, name.length() - ".idx".length()) + ".pack");
+
+        ByteBuffer idx;
+        try (FileChannel channel = FileChannel.open(idxFile.toPath(), StandardOpenOption.READ)) {
+            idx = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return new PackFile(packFile, FileChannel.open(packFile.toPath(), StandardOpenOption.READ), idx);
+    }
+
+    /**
+     * Returns the offset of the object with the given id in the pack, or -1 if the pack doesn't contain it.
+     */
+    long offset(String id) {
+        byte[] target = HexFormat.of().parseHex(id);
+        int first = target[0] & 0xff;
+
+        int lo = first == 0 ? 0 : idx.getInt(fanoutStart() + (first - 1) * 4);
+        int hi = idx.getInt(fanoutStart() + first * 4);
+
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareId(mid, target);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid;
+            } else {
+                return offsetAt(mid);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the object at the given offset, resolving deltas against bases in this pack or (for ref-deltas) the
+     * provided database.
+     */
+    ObjectDatabase.RawObject read(long offset, ObjectDatabase database) throws IOException {
+        header.clear();
+        readFully(header, offset);
+
+        int c = header.get(0) & 0xff;
+        int type = (c >> 4) & 7;
+        long size = c & 15;
+        int shift = 4;
+        int position = 1;
+        while ((c & 0x80) != 0) {
+            c = header.get(position++) & 0xff;
+            size |= (long) (c & 0x7f) << shift;
+            shift += 7;
+        }
+
+        return switch (type) {
+            case OFS_DELTA -> {
+                c = header.get(position++) & 0xff;
+                long distance = c & 0x7f;
+                while ((c & 0x80) != 0) {
+                    c = header.get(position++) & 0xff;
+                    distance = ((distance + 1) << 7) | (c & 0x7f);
+                }
+                ObjectDatabase.RawObject base = read(offset - distance, database);
+                byte[] delta = inflate(offset + position, size);
+                yield new ObjectDatabase.RawObject(base.type(), applyDelta(base.data(), delta));
+            }
+            case REF_DELTA -> {
+                byte[] baseId = new byte[20];
+                header.get(position, baseId);
+                position += 20;
+                ObjectDatabase.RawObject base = database.read(HexFormat.of().formatHex(baseId));
+                byte[] delta = inflate(offset + position, size);
+                yield new ObjectDatabase.RawObject(base.type(), applyDelta(base.data(), delta));
+            }
+            default -> new ObjectDatabase.RawObject(ObjectDatabase.Type.fromPackCode(type), inflate(offset + position, size));
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        pack.close();
+    }
+
+    @Override
+    public String toString() {
+        return packFile.toString();
+    }
+
+    private int fanoutStart() {
+        return version == 1 ? 0 : 8;
+    }
+
+    private int compareId(int index, byte[] target) {
+        int start = version == 1
+                ? 256 * 4 + index * 24 + 4
+                : 8 + 256 * 4 + index * 20;
+        for (int i = 0; i < 20; i++) {
+            int cmp = Integer.compare(idx.get(start + i) & 0xff, target[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    private long offsetAt(int index) {
+        if (version == 1) {
+            return idx.getInt(256 * 4 + index * 24) & 0xffffffffL;
+        }
+        int offsetsStart = 8 + 256 * 4 + count * 20 + count * 4;
+        int offset = idx.getInt(offsetsStart + index * 4);
+        if ((offset & 0x80000000) == 0) {
+            return offset;
+        }
+        int largeOffsetsStart = offsetsStart + count * 4;
+        return idx.getLong(largeOffsetsStart + (offset & 0x7fffffff) * 8);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = pack.read(buffer, position);
+            if (read < 0) {
+                // object headers near the end of the pack legitimately need fewer than 32 bytes
+                if (buffer.position() > 0) {
+                    break;
+                }
+                throw new EOFException(String.format("Unexpected end of pack %s.", packFile));
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    private byte[] inflate(long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException(String.format("Object too large to inflate in %s.", packFile));
+        }
+        byte[] out = new byte[(int) size];
+        if (size == 0) {
+            return out;
+        }
+
+        inflater.reset();
+        try {
+            int written = 0;
+            while (written < out.length) {
+                if (inflater.needsInput()) {
+                    input.clear();
+                    int read = pack.read(input, position);
+                    if (read < 0) {
+                        throw new EOFException(String.format("Unexpected end of pack %s.", packFile));
+                    }
+                    position += read;
+                    input.flip();
+                    inflater.setInput(input);
+                }
+                int inflated = inflater.inflate(out, written, out.length - written);
+                if (inflated == 0 && !inflater.needsInput()) {
+                    throw new IOException(String.format("Truncated object in pack %s.", packFile));
+                }
+                written += inflated;
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IOException(String.format("Corrupt object in pack %s.", packFile), e);
+        }
+    }
+
+    /**
+     * Applies a git delta (copy/insert instruction stream) to the provided base object.
+     */
+    static byte[] applyDelta(byte[] base, byte[] delta) throws IOException {
+        int[] position = {0};
+        long baseSize = varint(delta, position);
+        long resultSize = varint(delta, position);
+        if (baseSize != base.length) {
+            throw new IOException(String.format("Delta base size mismatch, expected %s but was %s.", baseSize, base.length));
+        }
+
+        byte[] result = new byte[(int) resultSize];
+        int written = 0;
+        int p = position[0];
+        while (p < delta.length) {
+            int op = delta[p++] & 0xff;
+            if ((op & 0x80) != 0) {
+                long offset = 0;
+                if ((op & 0x01) != 0) offset |= (delta[p++] & 0xffL);
+                if ((op & 0x02) != 0) offset |= (delta[p++] & 0xffL) << 8;
+                if ((op & 0x04) != 0) offset |= (delta[p++] & 0xffL) << 16;
+                if ((op & 0x08) != 0) offset |= (delta[p++] & 0xffL) << 24;
+                int length = 0;
+                if ((op & 0x10) != 0) length |= (delta[p++] & 0xff);
+                if ((op & 0x20) != 0) length |= (delta[p++] & 0xff) << 8;
+                if ((op & 0x40) != 0) length |= (delta[p++] & 0xff) << 16;
+                if (length == 0) {
+                    length = 0x10000;
+                }
+                System.arraycopy(base, (int) offset, result, written, length);
+                written += length;
+            } else if (op != 0) {
+                System.arraycopy(delta, p, result, written, op);
+                p += op;
+                written += op;
+            } else {
+                throw new IOException("Unsupported delta opcode 0.");
+            }
+        }
+        if (written != result.length) {
+            throw new IOException(String.format("Delta result size mismatch, expected %s but was %s.", result.length, written));
+        }
+        return result;
+    }
+
+    private static long varint(byte[] data, int[] position) {
+        long value = 0;
+        int shift = 0;
+        int c;
+        do {
+            c = data[position[0]++] & 0xff;
+            value |= (long) (c & 0x7f) << shift;
+            shift += 7;
+        } while ((c & 0x80) != 0);
+        return value;
+    }
+}
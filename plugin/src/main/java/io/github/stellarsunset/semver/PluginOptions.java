@@ -0,0 +1,67 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.provider.ProviderFactory;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Optional plugin behavior, configured through Gradle properties (e.g. in {@code gradle.properties} or with
+ * {@code -P}) as the plugin needs them while it is being applied, before any build script extension could be configured.
+ *
+ * @param mode     when the version is resolved, via {@code autoSemver.mode} (default: eager)
+ * @param monorepo whether each project is versioned on its own from tags prefixed with its directory, via
+ *                 {@code autoSemver.monorepo} (default: false)
+ * @param dirty    whether versions built from a work tree with uncommitted changes to tracked files are marked dirty,
+ *                 via {@code autoSemver.dirty} (default: false)
+ * @param stable   whether {@code project.version} is only the release part of the version, which doesn't change from
+ *                 one commit to the next, with the full version reserved for jar manifests and publications, via
+ *                 {@code autoSemver.stable} (default: false)
+ * @param report   whether the timings and counters of resolving the versions are written to
+ *                 {@code build/autoSemver/report.json} of the root project once the build finishes, via
+ *                 {@code autoSemver.report} (default: false)
+ * @param timeout  how long a single git command may run before it's stopped and reported, via
+ *                 {@code autoSemver.timeout} in seconds (default: 120)
+ * @param deepen   remote a shallow clone is deepened from until a release tag is reachable, via
+ *                 {@code autoSemver.deepen} (default: empty, shallow clones are described as they are)
+ */
+record PluginOptions(Mode mode, boolean monorepo, boolean dirty, boolean stable, boolean report,
+                     Duration timeout, String deepen) {
+
+    static final String PREFIX = "autoSemver.";
+
+    enum Mode {
+        /**
+         * Resolve the version as soon as the plugin is applied, {@code project.version} is a plain string.
+         */
+        EAGER,
+        /**
+         * Resolve the version the first time anything reads {@code project.version}, builds that never need the
+         * version never touch git.
+         */
+        LAZY,
+        /**
+         * Start resolving the version on a background thread as soon as the plugin is applied, joining the result the
+         * first time anything reads {@code project.version}.
+         */
+        ASYNC
+    }
+
+    static PluginOptions from(ProviderFactory providers) {
+        Mode mode = providers.gradleProperty(PREFIX + "mode")
+                .map(value -> Mode.valueOf(value.trim().toUpperCase(Locale.ROOT)))
+                .getOrElse(Mode.EAGER);
+        Duration timeout = providers.gradleProperty(PREFIX + "timeout")
+                .map(value -> Duration.ofSeconds(Long.parseLong(value.trim())))
+                .getOrElse(GitProcess.DEFAULT_TIMEOUT);
+        String deepen = providers.gradleProperty(PREFIX + "deepen").map(String::trim).getOrElse("");
+        return new PluginOptions(mode, flag(providers, "monorepo"), flag(providers, "dirty"), flag(providers, "stable"),
+                flag(providers, "report"), timeout, deepen);
+    }
+
+    private static boolean flag(ProviderFactory providers, String name) {
+        return providers.gradleProperty(PREFIX + name)
+                .map(value -> Boolean.parseBoolean(value.trim()))
+                .getOrElse(false);
+    }
+}
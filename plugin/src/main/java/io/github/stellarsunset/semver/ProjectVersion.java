@@ -0,0 +1,185 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.publish.PublishingExtension;
+import org.gradle.api.publish.maven.MavenPublication;
+import org.gradle.api.publish.maven.tasks.AbstractPublishToMaven;
+import org.gradle.api.publish.maven.tasks.GenerateMavenPom;
+import org.gradle.api.publish.tasks.GenerateModuleMetadata;
+import org.gradle.jvm.tasks.Jar;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * The resolved version of a repository in the two forms projects consume it: the object {@code project.version} is set
+ * to, and a provider of the plain string handed to tasks and the {@code autoSemver} extension. Along with the prefix
+ * the project's release tags are named with, empty unless the project is a scope of a monorepo.
+ *
+ * <p>Shared by the project and settings plugins so both resolve the version identically for the configured
+ * {@link PluginOptions.Mode}.
+ *
+ * <p>With {@link PluginOptions#stable()} {@code project.version} is only the release part of the version, so the inputs
+ * (and build cache keys) of the tasks reading it don't change with every commit. The full version is then only written
+ * where it identifies the final artifact, the jar manifests and the publications, and the manifest attribute is ignored
+ * on runtime classpaths so tests consuming those jars aren't rerun for it either.
+ */
+record ProjectVersion(Object value, Provider<String> text, String tagPrefix, boolean stable) {
+
+    /**
+     * Manifest attribute the full version is written to when {@code project.version} is stable.
+     */
+    static final String IMPLEMENTATION_VERSION = "Implementation-Version";
+
+    private static final Version.Serde JAVA = Version.Serde.java();
+
+    /**
+     * Resolves the version of the repository the provided {@link Git} points at according to the configured mode, with
+     * the persistent cache kept in the common git directory so every worktree of the repository shares it (or in the
+     * given project cache directory outside of a repository).
+     */
+    static ProjectVersion resolve(Git git, File projectCacheDir, Provider<VersionService> service,
+                                  ProviderFactory providers) {
+        File cacheDir = GitDir.find(git.projectDir()).map(GitDir::commonDir).orElse(projectCacheDir);
+        VersionCache cache = VersionCache.in(cacheDir);
+        return resolve(git, providers, service, Git.Scope.ROOT.tagPrefix(),
+                () -> service.get().version(git, cache),
+                () -> service.get().versionAsync(git, cache));
+    }
+
+    /**
+     * Resolves the version of the monorepo scope the given project lives in according to the configured mode, the
+     * scopes of all the projects of the build are resolved together the first time any of them is needed.
+     */
+    static ProjectVersion resolve(Git git, Project project, Provider<VersionService> service) {
+        List<Git.Scope> scopes = scopes(git, project.getRootProject().getAllprojects().stream()
+                .map(Project::getProjectDir)
+                .toList());
+        Git.Scope scope = scopes(git, List.of(project.getProjectDir())).getFirst();
+        return resolve(git, project.getProviders(), service, scope.tagPrefix(),
+                () -> service.get().version(git, scope, scopes),
+                () -> service.get().versionAsync(git, scope, scopes));
+    }
+
+    private static ProjectVersion resolve(Git git, ProviderFactory providers, Provider<VersionService> service,
+                                          String tagPrefix, Supplier<Version> sync,
+                                          Supplier<CompletableFuture<Version>> async) {
+        // derived from the ref state so configuration cache hits only need to re-check the refs, never git itself
+        PluginOptions options = PluginOptions.from(providers);
+        Provider<String> refState = providers.of(RefStateValueSource.class, spec -> {
+            spec.getParameters().getGitDirectory().set(git.gitDir());
+            spec.getParameters().getDirty().set(options.dirty());
+            spec.getParameters().getTimeout().set(options.timeout());
+            spec.getParameters().getService().set(service);
+        });
+        Provider<String> version = refState.map(state -> JAVA.serialize(withState(state, sync.get())));
+
+        // tasks only ever see the plain string so nothing git-related ends up in the configuration cache entry
+        boolean stable = options.stable();
+        return switch (options.mode()) {
+            case EAGER -> {
+                String eager = version.get();
+                yield new ProjectVersion(stable ? release(eager) : eager, providers.provider(() -> eager), tagPrefix, stable);
+            }
+            case LAZY -> {
+                LazyVersion lazy = new LazyVersion(version::get);
+                yield new ProjectVersion(stable ? new LazyVersion(() -> release(lazy.toString())) : lazy,
+                        providers.provider(lazy::toString), tagPrefix, stable);
+            }
+            case ASYNC -> {
+                // the ref state, and with it the work tree check of dirty versions, is only read along with the result
+                CompletableFuture<Version> started = async.get();
+                LazyVersion lazy = new LazyVersion(() -> JAVA.serialize(withState(refState.get(), VersionService.join(started))));
+                yield new ProjectVersion(stable ? new LazyVersion(() -> release(lazy.toString())) : lazy,
+                        providers.provider(lazy::toString), tagPrefix, stable);
+            }
+        };
+    }
+
+    /**
+     * Returns the release part of the given serialized version, see {@link Version#releasePart(Version)}.
+     */
+    private static String release(String version) {
+        return JAVA.serialize(Version.releasePart(JAVA.parse(version)));
+    }
+
+    /**
+     * Marks the version resolved from the committed history dirty if the ref state says the work tree has changes,
+     * leaving the cached version itself untouched. A dirty release becomes a zero-distance pre-release of itself, it
+     * isn't what the release tag points at.
+     */
+    private static Version withState(String refState, Version version) {
+        if (!refState.endsWith(RefStateValueSource.DIRTY)) {
+            return version;
+        }
+        return switch (version) {
+            // the state leads with the full id of HEAD, see RefState#refsKey
+            case Version.Release release -> Version.dirty(release, refState.substring(0, 7));
+            case Version.PreRelease preRelease -> Version.dirty(preRelease);
+            case Version.Dirty dirty -> dirty;
+        };
+    }
+
+    /**
+     * Returns the monorepo scope of every given project directory, relative to the work tree of the repository.
+     * Directories outside the work tree, and the root of the work tree itself, get the {@link Git.Scope#ROOT} scope.
+     */
+    static List<Git.Scope> scopes(Git git, List<File> projectDirs) {
+        Path workTree = GitDir.find(git.projectDir()).map(GitDir::workTree).orElse(git.projectDir()).toPath();
+        return projectDirs.stream().map(projectDir -> scope(workTree, GitDir.canonical(projectDir).toPath())).toList();
+    }
+
+    private static Git.Scope scope(Path workTree, Path projectDir) {
+        if (!projectDir.startsWith(workTree)) {
+            return Git.Scope.ROOT;
+        }
+        return Git.Scope.of(workTree.relativize(projectDir).toString().replace(File.separatorChar, '/'));
+    }
+
+    /**
+     * Sets {@code project.version} and registers the {@code autoSemver} extension exposing it, and if the version is
+     * stable writes the full one to the jar manifests and publications.
+     */
+    void applyTo(Project project) {
+        project.setVersion(value);
+        AutoSemverExtension extension = project.getExtensions().create(AutoSemverExtension.NAME, AutoSemverExtension.class);
+        extension.getVersion().value(text).finalizeValueOnRead();
+        extension.getReleaseVersion().value(text.map(ProjectVersion::release)).finalizeValueOnRead();
+
+        if (stable) {
+            project.getTasks().withType(Jar.class).configureEach(jar ->
+                    jar.getManifest().getAttributes().put(IMPLEMENTATION_VERSION, text));
+            project.getNormalization().getRuntimeClasspath()
+                    .metaInf(metaInf -> metaInf.ignoreAttribute(IMPLEMENTATION_VERSION));
+            // publications only take a plain string, so it's only resolved once a task reading them is about to run
+            project.getPlugins().withId("maven-publish", _ -> project.getGradle().getTaskGraph().whenReady(graph -> {
+                if (graph.getAllTasks().stream().anyMatch(ProjectVersion::readsPublications)) {
+                    project.getExtensions().getByType(PublishingExtension.class).getPublications()
+                            .withType(MavenPublication.class).configureEach(publication -> publication.setVersion(text.get()));
+                }
+            }));
+        }
+    }
+
+    /**
+     * Returns true for the tasks writing the coordinates of a publication, including those of other projects' POMs and
+     * module metadata depending on it.
+     */
+    private static boolean readsPublications(Task task) {
+        return task instanceof GenerateMavenPom || task instanceof GenerateModuleMetadata
+                || task instanceof AbstractPublishToMaven;
+    }
+
+    /**
+     * Returns the directory Gradle keeps per-build caches in, honoring {@code --project-cache-dir}.
+     */
+    static File projectCacheDir(File configured, File rootDir) {
+        return configured != null ? configured : new File(rootDir, ".gradle");
+    }
+}
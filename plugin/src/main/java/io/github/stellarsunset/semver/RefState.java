@@ -0,0 +1,108 @@
+package io.github.stellarsunset.semver;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Cheap fingerprint of everything in a git directory that can change the described version, computed from file stats
+ * and the resolved HEAD commit without reading any objects.
+ *
+ * <p>Two equal states are guaranteed to describe to the same version, the converse doesn't hold (e.g. a tag ref being
+ * rewritten with identical content still changes the fingerprint) which is fine for caching.
+ */
+record RefState(String head, String packedRefs, String tagRefs, String index) {
+
+    /**
+     * Returns the current state of the given git directory, empty if HEAD doesn't resolve to a commit (or the refs can't
+     * be read at all) in which case nothing should be cached.
+     */
+    static Optional<RefState> read(File gitDir) {
+        try {
+            Refs refs = new Refs(gitDir);
+            Optional<String> head = refs.head();
+            if (head.isEmpty()) {
+                return Optional.empty();
+            }
+
+            // tags are shared by every worktree, only HEAD and the index are their own
+            Hasher tags = Hashing.murmur3_128().newHasher();
+            hashTree(new File(refs.commonDir(), "refs/tags"), tags);
+            // a deepened shallow clone exposes more history without touching any refs
+            tags.putString(stat(new File(refs.commonDir(), "shallow")), StandardCharsets.UTF_8);
+
+            return Optional.of(new RefState(
+                    head.get(),
+                    stat(new File(refs.commonDir(), "packed-refs")),
+                    tags.hash().toString(),
+                    stat(new File(gitDir, "index"))
+            ));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns a single-string form of the state suitable for use as a cache key.
+     */
+    String key() {
+        return String.join(":", head, packedRefs, tagRefs, index);
+    }
+
+    /**
+     * Returns the ref-only portion of the key, excluding the index which changes with every {@code git add} but never
+     * moves HEAD or the tags the version is derived from.
+     */
+    String refsKey() {
+        return String.join(":", head, packedRefs, tagRefs);
+    }
+
+    /**
+     * Returns the tag-only portion of the key, two states sharing it have the same tags (and shallow boundary) even if
+     * HEAD moved in between.
+     */
+    String tagsKey() {
+        return String.join(":", packedRefs, tagRefs);
+    }
+
+    private static void hashTree(File dir, Hasher hasher) throws IOException {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            hasher.putString(child.getName(), StandardCharsets.UTF_8);
+            if (child.isDirectory()) {
+                hashTree(child, hasher);
+            } else {
+                hasher.putString(stat(child), StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    /**
+     * Returns a stat-based fingerprint (size, modification time and file key where the platform has one) of a file.
+     */
+    private static String stat(File file) throws IOException {
+        Path path = file.toPath();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return String.format("%s-%s-%s",
+                    attributes.size(),
+                    attributes.lastModifiedTime().toInstant(),
+                    attributes.fileKey());
+        } catch (NoSuchFileException e) {
+            return "absent";
+        }
+    }
+}
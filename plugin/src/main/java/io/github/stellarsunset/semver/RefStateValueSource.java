@@ -0,0 +1,55 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.ValueSource;
+import org.gradle.api.provider.ValueSourceParameters;
+import org.gradle.process.ExecOperations;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.time.Duration;
+
+/**
+ * {@link ValueSource} exposing the {@link RefState#refsKey()} of a git directory to Gradle's configuration cache.
+ *
+ * <p>The version provider is derived from this source, so on a configuration cache hit Gradle only re-reads the
+ * (stat-based) ref state to confirm the cached configuration is still valid, and git is only consulted again once the
+ * refs have actually changed.
+ *
+ * <p>When dirty versions are enabled the state also records whether the work tree has uncommitted changes, checked
+ * against the index's stat cache by {@link WorkTree} so a clean tree costs a stat per tracked file rather than a hash,
+ * once per build and index as the {@link VersionService} memoizes it.
+ */
+public abstract class RefStateValueSource implements ValueSource<String, RefStateValueSource.Parameters> {
+
+    /**
+     * Suffix of the state of a work tree with uncommitted changes.
+     */
+    static final String DIRTY = ":dirty";
+
+    public interface Parameters extends ValueSourceParameters {
+        DirectoryProperty getGitDirectory();
+
+        Property<Boolean> getDirty();
+
+        Property<Duration> getTimeout();
+
+        Property<VersionService> getService();
+    }
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @Override
+    public String obtain() {
+        File gitDir = getParameters().getGitDirectory().get().getAsFile();
+        // an unresolvable state is still a stable value, describing the repository will report the actual problem
+        String state = RefState.read(gitDir).map(RefState::refsKey).orElse("");
+        if (state.isEmpty() || !getParameters().getDirty().getOrElse(false)) {
+            return state;
+        }
+        Duration timeout = getParameters().getTimeout().getOrElse(GitProcess.DEFAULT_TIMEOUT);
+        return getParameters().getService().get().isDirty(gitDir, state, getExecOperations(), timeout) ? state + DIRTY : state;
+    }
+}
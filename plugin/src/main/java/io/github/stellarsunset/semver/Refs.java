@@ -0,0 +1,152 @@
+package io.github.stellarsunset.semver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Reader for the loose and packed references of a repository using the default "files" ref backend.
+ *
+ * <p>See <a href="https://git-scm.com/docs/gitrepository-layout">gitrepository-layout</a>, loose refs always take
+ * precedence over entries in {@code packed-refs}. In a linked worktree HEAD (and the few other per-worktree refs) is
+ * read from its own git directory, everything else from the {@link GitDir#commonDir common} one.
+ */
+record Refs(File gitDir, File commonDir) {
+
+    private static final String SYMBOLIC_PREFIX = "ref: ";
+
+    private static final int MAX_SYMBOLIC_DEPTH = 5;
+
+    Refs(File gitDir) {
+        this(gitDir, GitDir.commonDir(gitDir));
+    }
+
+    /**
+     * A reference and the object it points at, the peeled id is the (recursively de-referenced) target of an annotated
+     * tag as recorded in {@code packed-refs} if present.
+     */
+    record Ref(String name, String id, Optional<String> peeled) {
+    }
+
+    /**
+     * Returns the commit id HEAD currently resolves to, empty for an unborn branch.
+     */
+    Optional<String> head() throws IOException {
+        return resolve("HEAD", packed(), 0);
+    }
+
+    /**
+     * Returns all refs under {@code refs/tags/} keyed (and so sorted) by their full ref name.
+     */
+    SortedMap<String, Ref> tags() throws IOException {
+        SortedMap<String, Ref> tags = new TreeMap<>();
+        Map<String, Ref> packed = packed();
+        packed.forEach((name, ref) -> {
+            if (name.startsWith("refs/tags/")) {
+                tags.put(name, ref);
+            }
+        });
+        collectLoose(new File(commonDir, "refs/tags"), "refs/tags/", packed, tags);
+        return tags;
+    }
+
+    /**
+     * Returns true if the repository contains any {@code refs/replace/} refs, which git honors transparently when walking
+     * history.
+     */
+    boolean hasReplaceRefs() throws IOException {
+        String[] loose = new File(commonDir, "refs/replace").list();
+        return (loose != null && loose.length > 0)
+                || packed().keySet().stream().anyMatch(name -> name.startsWith("refs/replace/"));
+    }
+
+    private void collectLoose(File dir, String prefix, Map<String, Ref> packed, Map<String, Ref> into) throws IOException {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            String name = prefix + child.getName();
+            if (child.isDirectory()) {
+                collectLoose(child, name + "/", packed, into);
+            } else if (!child.getName().endsWith(".lock")) {
+                Optional<String> id = resolve(name, packed, 0);
+                if (id.isPresent()) {
+                    into.put(name, new Ref(name, id.get(), Optional.empty()));
+                } else {
+                    into.remove(name);
+                }
+            }
+        }
+    }
+
+    private Optional<String> resolve(String name, Map<String, Ref> packed, int depth) throws IOException {
+        if (depth > MAX_SYMBOLIC_DEPTH) {
+            throw new IOException(String.format("Too many levels of symbolic refs resolving %s.", name));
+        }
+        Optional<String> loose = readLoose(name);
+        if (loose.isPresent()) {
+            String content = loose.get();
+            return content.startsWith(SYMBOLIC_PREFIX)
+                    ? resolve(content.substring(SYMBOLIC_PREFIX.length()).trim(), packed, depth + 1)
+                    : Optional.of(content);
+        }
+        return Optional.ofNullable(packed.get(name)).map(Ref::id);
+    }
+
+    private Optional<String> readLoose(String name) throws IOException {
+        File file = new File(perWorktree(name) ? gitDir : commonDir, name);
+        if (!file.isFile()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Files.readString(file.toPath(), StandardCharsets.UTF_8).trim());
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns true for the refs each worktree keeps for itself, HEAD and those under {@code refs/worktree/},
+     * {@code refs/bisect/} and {@code refs/rewritten/}.
+     */
+    private static boolean perWorktree(String name) {
+        return !name.startsWith("refs/") || name.startsWith("refs/worktree/") || name.startsWith("refs/bisect/")
+                || name.startsWith("refs/rewritten/");
+    }
+
+    private Map<String, Ref> packed() throws IOException {
+        File file = new File(commonDir, "packed-refs");
+        Map<String, Ref> refs = new TreeMap<>();
+        if (!file.isFile()) {
+            return refs;
+        }
+
+        Ref previous = null;
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("^")) {
+                if (previous != null) {
+                    previous = new Ref(previous.name(), previous.id(), Optional.of(line.substring(1).trim()));
+                    refs.put(previous.name(), previous);
+                }
+                continue;
+            }
+            int space = line.indexOf(' ');
+            if (space != 40) {
+                throw new IOException(String.format("Malformed packed-refs line: %s", line));
+            }
+            previous = new Ref(line.substring(space + 1), line.substring(0, space), Optional.empty());
+            refs.put(previous.name(), previous);
+        }
+        return refs;
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.problems.Problems;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.process.ExecOperations;
+import org.gradle.work.DisableCachingByDefault;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tags the current commit as the next release of many scopes of a monorepo at once, either all of them are tagged or
+ * none is, see {@link Git#tagVersions(List)}.
+ *
+ * <p>Unlike {@link ReleaseTask} the versions are resolved when the task runs, every scope is released with the same
+ * increment and message.
+ */
+@SuppressWarnings("UnstableApiUsage")
+@DisableCachingByDefault(because = "This task is computing incremental release versions and should not be cached.")
+public abstract class ReleaseAllTask extends DefaultTask {
+
+    private static final Version.Serde SERDE = Version.Serde.java();
+
+    @Override
+    public String getDescription() {
+        return "Tag the current commit as a release commit of every changed project with the provided increment "
+                + "(default: Patch)";
+    }
+
+    /**
+     * The monorepo scope of every project of the build, by project path, see {@link Git.Scope#path()}.
+     */
+    @Input
+    public abstract MapProperty<String, String> getScopes();
+
+    /**
+     * Paths of the projects to release, by default every project with commits since its last release or without any
+     * release yet.
+     */
+    @Input
+    public abstract ListProperty<String> getProjects();
+
+    @Input
+    public abstract Property<ReleaseTask.Increment> getIncrement();
+
+    /**
+     * Custom message for all the annotated tags, a default one naming the version of each is used if absent.
+     */
+    @Input
+    @Optional
+    public abstract Property<String> getMessage();
+
+    @Internal
+    public abstract DirectoryProperty getProjectDirectory();
+
+    /**
+     * How long a single git command may run before it's stopped, see {@link PluginOptions#timeout()}.
+     */
+    @Internal
+    public abstract Property<Duration> getCommandTimeout();
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @Inject
+    protected abstract Problems getProblems();
+
+    @TaskAction
+    public void release() {
+        Git git = new Git(getProjectDirectory().get().getAsFile(), getExecOperations(), getProblems().getReporter(),
+                getCommandTimeout().getOrElse(GitProcess.DEFAULT_TIMEOUT));
+
+        Map<String, String> scopes = getScopes().get();
+        List<String> projects = getProjects().get();
+
+        Set<Git.Scope> selected = new LinkedHashSet<>();
+        for (String project : projects.isEmpty() ? scopes.keySet() : projects) {
+            String path = scopes.get(project);
+            if (path == null) {
+                throw new IllegalArgumentException("Unknown project " + project + ", expected one of " + scopes.keySet());
+            }
+            selected.add(Git.Scope.of(path));
+        }
+
+        List<Git.ReleaseTag> tags = new ArrayList<>();
+        git.releasedVersions(List.copyOf(selected)).forEach((scope, released) -> {
+            // projects named explicitly are released even without new commits, just like with the release task, and so
+            // are projects never released before
+            if (projects.isEmpty() && released.orElse(null) instanceof Version.Release) {
+                return;
+            }
+            Version.Release next = getIncrement().get().next(Version.releasePart(released.orElseGet(Version::initial)));
+            tags.add(new Git.ReleaseTag(next, scope.tagPrefix(),
+                    getMessage().getOrElse(Git.releaseMessage(next, scope.tagPrefix()))));
+        });
+
+        if (tags.isEmpty()) {
+            getLogger().lifecycle("No project has changed since its last release");
+            return;
+        }
+        git.tagVersions(tags);
+        tags.forEach(tag -> getLogger().lifecycle("Tagged new release {}{}", tag.tagPrefix(),
+                SERDE.serialize(tag.version())));
+    }
+}
@@ -0,0 +1,201 @@
+package io.github.stellarsunset.semver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Sorted index of the releases tagged in a repository, answering floor, ceiling and range queries in {@code O(log n)}
+ * with a binary search over the {@link Version.Release#pack() packed} releases.
+ *
+ * <p>Only tags named like releases with the index's prefix count (e.g. {@code v1.2.3}, or {@code core/v1.2.3} for a
+ * prefix of {@code core/}), everything else is ignored. Should any release have a component too large to be packed
+ * (e.g. a CalVer major like {@code v20261017.0.0}) the whole index is kept as releases sorted by their natural order
+ * instead, answering the same queries with a binary search over those.
+ */
+public final class ReleaseIndex {
+
+    private final Version.Serde serde;
+
+    /**
+     * Distinct packed releases in ascending order, null if any of them can't be packed.
+     */
+    private final long[] packed;
+
+    /**
+     * Distinct releases in ascending order, only set when they can't all be packed.
+     */
+    private final Version.Release[] unpacked;
+
+    private ReleaseIndex(Version.Serde serde, long[] packed, Version.Release[] unpacked) {
+        this.serde = serde;
+        this.packed = packed;
+        this.unpacked = unpacked;
+    }
+
+    /**
+     * Builds the index from the tags of the given git directory, read in one go from {@code packed-refs} along with any
+     * loose tags.
+     */
+    static ReleaseIndex read(File gitDir, String tagPrefix) throws IOException {
+        return of(new Refs(gitDir).tags().keySet().stream()
+                .map(ref -> ref.substring("refs/tags/".length()))
+                .toList(), tagPrefix);
+    }
+
+    /**
+     * Builds the index from the given tag names (without the {@code refs/tags/} prefix).
+     */
+    static ReleaseIndex of(Collection<String> tags, String tagPrefix) {
+        Version.Serde serde = Version.Serde.gitPorcelain(tagPrefix);
+
+        Version.Release[] releases = new Version.Release[tags.size()];
+        int count = 0;
+        boolean packable = true;
+        for (String tag : tags) {
+            if (!tag.startsWith(tagPrefix + "v")) {
+                continue;
+            }
+            try {
+                if (serde.parse(tag) instanceof Version.Release release) {
+                    releases[count++] = release;
+                    packable &= release.packable();
+                }
+            } catch (Version.Serde.IllegalVersionException e) {
+                // tags that merely look like versions aren't releases
+            }
+        }
+
+        if (!packable) {
+            Version.Release[] sorted = Arrays.copyOf(releases, count);
+            Arrays.sort(sorted, Version.Release.ORDER);
+            return new ReleaseIndex(serde, null, distinct(sorted));
+        }
+        long[] sorted = new long[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = releases[i].pack();
+        }
+        Arrays.sort(sorted);
+        return new ReleaseIndex(serde, distinct(sorted), null);
+    }
+
+    public int size() {
+        return packed != null ? packed.length : unpacked.length;
+    }
+
+    public boolean contains(Version.Release release) {
+        return search(release) >= 0;
+    }
+
+    /**
+     * Returns the latest release, empty if nothing was released yet.
+     */
+    public Optional<Version.Release> latest() {
+        return size() == 0 ? Optional.empty() : Optional.of(get(size() - 1));
+    }
+
+    /**
+     * Returns the greatest release less than or equal to the given one.
+     */
+    public Optional<Version.Release> floor(Version.Release release) {
+        int index = upperBound(release) - 1;
+        return index < 0 ? Optional.empty() : Optional.of(get(index));
+    }
+
+    /**
+     * Returns the least release greater than or equal to the given one.
+     */
+    public Optional<Version.Release> ceiling(Version.Release release) {
+        int index = lowerBound(release);
+        return index >= size() ? Optional.empty() : Optional.of(get(index));
+    }
+
+    /**
+     * Returns the releases from (inclusive) and to (exclusive) the given ones in ascending order.
+     */
+    public List<Version.Release> range(Version.Release fromInclusive, Version.Release toExclusive) {
+        int from = lowerBound(fromInclusive);
+        int to = lowerBound(toExclusive);
+
+        List<Version.Release> range = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            range.add(get(i));
+        }
+        return range;
+    }
+
+    /**
+     * Returns the name of the tag of the given release.
+     */
+    public String tag(Version.Release release) {
+        return serde.serialize(release);
+    }
+
+    private Version.Release get(int index) {
+        return packed != null ? Version.Release.unpack(packed[index]) : unpacked[index];
+    }
+
+    /**
+     * Returns the index of the first release greater than or equal to the given one.
+     */
+    private int lowerBound(Version.Release release) {
+        int index = search(release);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Returns the index of the first release strictly greater than the given one.
+     */
+    private int upperBound(Version.Release release) {
+        int index = search(release);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Binary search for the given release with the contract of {@link Arrays#binarySearch(long[], long)}, a release too
+     * large to be packed is searched for by comparing releases even in a packed index.
+     */
+    private int search(Version.Release release) {
+        if (packed != null && release.packable()) {
+            return Arrays.binarySearch(packed, release.pack());
+        }
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = Version.Release.ORDER.compare(get(middle), release);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static Version.Release[] distinct(Version.Release[] sorted) {
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || !sorted[i].equals(sorted[i - 1])) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    private static long[] distinct(long[] sorted) {
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+}
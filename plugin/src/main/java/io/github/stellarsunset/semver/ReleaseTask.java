@@ -1,29 +1,43 @@
 package io.github.stellarsunset.semver;
 
 import org.gradle.api.DefaultTask;
-import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.logging.Logger;
+import org.gradle.api.problems.Problems;
+import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.process.ExecOperations;
 import org.gradle.work.DisableCachingByDefault;
 
 import javax.inject.Inject;
-import java.util.Map;
-import java.util.Optional;
-
-import static java.util.Objects.requireNonNull;
+import java.time.Duration;
 
+/**
+ * Tags the current commit as the next release, all state is modeled as task properties (and git is reached through
+ * injected services) so the task is fully configuration-cache compatible.
+ */
+@SuppressWarnings("UnstableApiUsage")
 @DisableCachingByDefault(because = "This task is computing an incremental release version and should not be cached.")
-public class ReleaseTask extends DefaultTask {
+public abstract class ReleaseTask extends DefaultTask {
 
     private static final Version.Serde SERDE = Version.Serde.java();
 
-    private final Git git;
-    private Version version;
-
-    @Inject
-    public ReleaseTask(Git git) {
-        this.git = requireNonNull(git);
+    /**
+     * The version component to increment when cutting the next release.
+     */
+    public enum Increment {
+        PATCH, MINOR, MAJOR;
+
+        public Version.Release next(Version.Release previous) {
+            return switch (this) {
+                case PATCH -> previous.nextPatch();
+                case MINOR -> previous.nextMinor();
+                case MAJOR -> previous.nextMajor();
+            };
+        }
     }
 
     @Override
@@ -31,58 +45,57 @@ public class ReleaseTask extends DefaultTask {
         return "Tag the current commit as a release commit with the provided increment (default: Patch)";
     }
 
+    /**
+     * The current project version in the {@link Version.Serde#java()} format.
+     */
     @Input
-    public Version getVersion() {
-        return version;
-    }
+    public abstract Property<String> getVersion();
 
-    public void setVersion(Version version) {
-        this.version = version;
-    }
+    @Input
+    public abstract Property<Increment> getIncrement();
 
-    // https://docs.gradle.org/current/userguide/custom_tasks.html
-    @TaskAction
-    public void release() {
-        Logger logger = getLogger();
+    /**
+     * Prefix of the release tag, e.g. {@code core/} for a project versioned as part of a monorepo, empty by default.
+     */
+    @Input
+    public abstract Property<String> getTagPrefix();
 
-        Project project = getProject();
-        CliOptions options = new CliOptions(project.getProperties());
+    /**
+     * Custom message for the annotated tag, a default one naming the version is used if absent.
+     */
+    @Input
+    @Optional
+    public abstract Property<String> getMessage();
 
-        Version.Release previous = Version.releasePart(version);
-        Version.Release next = options.nextVersion(previous);
+    @Internal
+    public abstract DirectoryProperty getProjectDirectory();
 
-        options.message().map(m -> git.tagVersion(next, m))
-                .orElseGet(() -> git.tagVersion(next));
+    /**
+     * How long a single git command may run before it's stopped, see {@link PluginOptions#timeout()}.
+     */
+    @Internal
+    public abstract Property<Duration> getCommandTimeout();
 
-        logger.lifecycle("Tagged new release {}", SERDE.serialize(next));
-    }
+    @Inject
+    protected abstract ExecOperations getExecOperations();
 
-    private record CliOptions(Map<String, ?> properties) {
+    @Inject
+    protected abstract Problems getProblems();
 
-        boolean incrementPatch() {
-            return properties.containsKey("patch");
-        }
+    // https://docs.gradle.org/current/userguide/custom_tasks.html
+    @TaskAction
+    public void release() {
+        Logger logger = getLogger();
 
-        boolean incrementMinor() {
-            return properties.containsKey("minor");
-        }
+        Git git = new Git(getProjectDirectory().get().getAsFile(), getExecOperations(), getProblems().getReporter(),
+                getCommandTimeout().getOrElse(GitProcess.DEFAULT_TIMEOUT));
 
-        boolean incrementMajor() {
-            return properties.containsKey("major");
-        }
+        Version.Release previous = Version.releasePart(SERDE.parse(getVersion().get()));
+        Version.Release next = getIncrement().get().next(previous);
 
-        private Version.Release nextVersion(Version.Release previous) {
-            if (incrementMajor()) {
-                return previous.nextMajor();
-            } else if (incrementMinor()) {
-                return previous.nextMinor();
-            } else {
-                return previous.nextPatch();
-            }
-        }
+        String prefix = getTagPrefix().getOrElse("");
+        git.tagVersion(next, prefix, getMessage().getOrElse(Git.releaseMessage(next, prefix)));
 
-        Optional<String> message() {
-            return Optional.ofNullable(properties.get("message")).map(o -> o instanceof String s ? s : null);
-        }
+        logger.lifecycle("Tagged new release {}", SERDE.serialize(next));
     }
-}
\ No newline at end of file
+}
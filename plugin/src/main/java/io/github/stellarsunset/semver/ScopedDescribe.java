@@ -0,0 +1,266 @@
+package io.github.stellarsunset.semver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Describes HEAD for several {@link Git.Scope}s of a monorepo at once, each against its own prefixed tags and with a
+ * distance counting only the commits that touched its directory.
+ *
+ * <p>All scopes share a single date-ordered walk of history. Each scope picks the first of its annotated tags the walk
+ * reaches (like {@code git describe --match '<prefix>v*'} in linear history), marks that commit's ancestry as covered
+ * for the scope, and counts every uncovered commit that changed its path. A commit changes a path when the path's tree
+ * differs from the one in every parent, which hides merges the same way {@code git log -- <path>} does by default.
+ */
+final class ScopedDescribe {
+
+    /**
+     * Parsed trees kept around for path lookups, siblings in history mostly share all but a few of them.
+     */
+    private static final int TREE_CACHE_SIZE = 4096;
+
+    private final ObjectDatabase database;
+    private final Set<String> shallow;
+    private final List<Git.Scope> scopes;
+    private final List<String[]> paths;
+
+    /**
+     * Scopes with at least one release tag of their own, annotated or not.
+     */
+    private final BitSet tagged = new BitSet();
+
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final PriorityQueue<Node> list = new PriorityQueue<>(
+            Comparator.comparingLong((Node n) -> -n.time).thenComparingLong(n -> n.order));
+    private long inserted;
+
+    private final Map<String, ObjectDatabase.Tree> trees = new LinkedHashMap<>(TREE_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ObjectDatabase.Tree> eldest) {
+            return size() > TREE_CACHE_SIZE;
+        }
+    };
+
+    private ScopedDescribe(ObjectDatabase database, Set<String> shallow, List<Git.Scope> scopes) {
+        this.database = database;
+        this.shallow = shallow;
+        this.scopes = scopes;
+        this.paths = scopes.stream()
+                .map(scope -> scope.path().isEmpty() ? new String[0] : scope.path().split("/"))
+                .toList();
+    }
+
+    private static final class Node {
+        private final String id;
+        private final String tree;
+        private final List<String> parents;
+        private final long time;
+        private final BitSet covered = new BitSet();
+        private String[] pathTrees;
+        private boolean seen;
+        private long order;
+
+        private Node(String id, String tree, List<String> parents, long time) {
+            this.id = id;
+            this.tree = tree;
+            this.parents = parents;
+            this.time = time;
+        }
+    }
+
+    /**
+     * Describes the given HEAD commit for every scope in a single walk.
+     *
+     * @param shallow commits whose parents have been cut off by a shallow clone and so are treated as roots
+     */
+    static Map<Git.Scope, Describe.Result> describe(ObjectDatabase database, String head,
+                                                    SortedMap<String, Refs.Ref> tags, Set<String> shallow,
+                                                    List<Git.Scope> scopes) throws IOException {
+        return new ScopedDescribe(database, shallow, List.copyOf(scopes)).run(head, tags);
+    }
+
+    private Map<Git.Scope, Describe.Result> run(String head, SortedMap<String, Refs.Ref> tags) throws IOException {
+        int count = scopes.size();
+        List<Map<String, String>> names = names(tags);
+
+        String[] found = new String[count];
+        int[] distances = new int[count];
+
+        // scopes without a single tag of their own are settled before the walk even starts
+        BitSet pending = new BitSet();
+        for (int i = 0; i < count; i++) {
+            if (!names.get(i).isEmpty()) {
+                pending.set(i);
+            }
+        }
+
+        Node start = node(head);
+        start.seen = true;
+        insert(start);
+
+        BitSet settled = new BitSet();
+        while (!list.isEmpty() && !(pending.isEmpty() && allCovered(settled))) {
+            Node c = list.poll();
+
+            for (int i = pending.nextSetBit(0); i >= 0; i = pending.nextSetBit(i + 1)) {
+                String tag = names.get(i).get(c.id);
+                if (tag != null) {
+                    found[i] = tag;
+                    c.covered.set(i);
+                    settled.set(i);
+                    pending.clear(i);
+                }
+            }
+
+            for (int i = 0; i < count; i++) {
+                if (!names.get(i).isEmpty() && !c.covered.get(i) && touches(c, i)) {
+                    distances[i]++;
+                }
+            }
+
+            for (String parent : c.parents) {
+                Node p = node(parent);
+                if (!p.seen) {
+                    p.seen = true;
+                    insert(p);
+                }
+                p.covered.or(c.covered);
+            }
+        }
+
+        Map<Git.Scope, Describe.Result> results = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            Git.Scope scope = scopes.get(i);
+            if (!tagged.get(i)) {
+                results.put(scope, new Describe.Result.NoNames());
+            } else if (found[i] == null) {
+                results.put(scope, new Describe.Result.Undescribable(
+                        String.format("No tags matching '%sv*' can describe '%s'.", scope.tagPrefix(), head)));
+            } else {
+                results.put(scope, new Describe.Result.Described(found[i], distances[i], head));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns true once every queued commit is covered by the tags of all the settled scopes, at which point nothing
+     * left to walk can count towards any of their distances.
+     */
+    private boolean allCovered(BitSet settled) {
+        for (Node node : list) {
+            BitSet missing = (BitSet) settled.clone();
+            missing.andNot(node.covered);
+            if (!missing.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the annotated release tags of each scope keyed by the commit they point at, preferring the newest tag of a scope
+     * when several point at the same commit.
+     */
+    private List<Map<String, String>> names(SortedMap<String, Refs.Ref> tags) throws IOException {
+        List<Map<String, String>> names = new ArrayList<>();
+        for (Git.Scope scope : scopes) {
+            Version.Serde serde = scope.serde();
+            Map<String, String> scoped = new HashMap<>();
+            Map<String, Long> dates = new HashMap<>();
+            for (Refs.Ref ref : tags.values()) {
+                String name = ref.name().substring("refs/tags/".length());
+                if (!serde.isRelease(name)) {
+                    continue;
+                }
+                tagged.set(names.size());
+                ObjectDatabase.RawObject object = database.read(ref.id());
+                if (object.type() != ObjectDatabase.Type.TAG) {
+                    continue;
+                }
+                ObjectDatabase.Tag tag = ObjectDatabase.Tag.parse(ref.id(), object.data());
+                String target = ref.peeled().orElse(tag.object());
+                if (!scoped.containsKey(target) || dates.get(target) < tag.time()) {
+                    scoped.put(target, name);
+                    dates.put(target, tag.time());
+                }
+            }
+            names.add(scoped);
+        }
+        return names;
+    }
+
+    /**
+     * Returns true if the commit changed the path of the given scope compared to every one of its parents.
+     */
+    private boolean touches(Node c, int scope) throws IOException {
+        if (paths.get(scope).length == 0) {
+            return true;
+        }
+        String tree = pathTree(c, scope);
+        if (c.parents.isEmpty()) {
+            return tree != null;
+        }
+        for (String parent : c.parents) {
+            String parentTree = pathTree(node(parent), scope);
+            if (tree == null ? parentTree == null : tree.equals(parentTree)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the id of the tree at the scope's path in the given commit, null if the path doesn't exist there.
+     */
+    private String pathTree(Node node, int scope) throws IOException {
+        if (node.pathTrees == null) {
+            node.pathTrees = new String[scopes.size()];
+        }
+        if (node.pathTrees[scope] == null) {
+            String current = node.tree;
+            for (String component : paths.get(scope)) {
+                current = tree(current).entries().get(component);
+                if (current == null) {
+                    break;
+                }
+            }
+            // the empty string marks a path known to be missing, so it's only ever looked up once
+            node.pathTrees[scope] = current == null ? "" : current;
+        }
+        return node.pathTrees[scope].isEmpty() ? null : node.pathTrees[scope];
+    }
+
+    private ObjectDatabase.Tree tree(String id) throws IOException {
+        ObjectDatabase.Tree tree = trees.get(id);
+        if (tree == null) {
+            tree = database.tree(id);
+            trees.put(id, tree);
+        }
+        return tree;
+    }
+
+    private void insert(Node node) {
+        node.order = inserted++;
+        list.add(node);
+    }
+
+    private Node node(String id) throws IOException {
+        Node node = nodes.get(id);
+        if (node == null) {
+            ObjectDatabase.Commit commit = database.commit(id);
+            node = new Node(id, commit.tree(), shallow.contains(id) ? List.of() : commit.parents(), commit.time());
+            nodes.put(id, node);
+        }
+        return node;
+    }
+}
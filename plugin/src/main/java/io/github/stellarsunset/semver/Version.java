@@ -1,5 +1,6 @@
 package io.github.stellarsunset.semver;
 
+import java.util.Comparator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -9,8 +10,14 @@ import static com.google.common.base.Preconditions.checkArgument;
  * Represents the bounded collection of supported version formats.
  *
  * <p>The version interface only guarantees there is a string format for each version through {@link Serde}.
+ *
+ * <p>Versions are ordered by release like SemVer orders them, a pre-release sorting before the release it shares its
+ * major, minor and patch with (like {@code 1.0.0-alpha3+abcdef0} before {@code 1.0.0}), but pre-releases of the same
+ * release are ordered by their distance as a number. That differs from the SemVer precedence of the {@link Serde#java()}
+ * strings, which compares {@code alpha10} and {@code alpha9} as text and puts {@code alpha10} first. The ordering is
+ * consistent with equals, the remaining ties are broken by commit and dirtiness, clean versions first.
  */
-public sealed interface Version {
+public sealed interface Version extends Comparable<Version> {
 
     /**
      * The initial release version for a project if there are no tags already present.
@@ -31,9 +38,18 @@ public sealed interface Version {
      * since the previous release, and the hash of the current commit.
      */
     static PreRelease preRelease(Release release, int distance, String commit) {
+        checkArgument(distance > 0, "Distance must be greater than zero for a snapshot: %s", distance);
         return new PreRelease(release, distance, commit);
     }
 
+    /**
+     * Handle for a release with uncommitted changes on top of its tagged commit, written like a pre-release at a distance
+     * of zero from the release. A clean snapshot on the other hand is always at least one commit past the release.
+     */
+    static Dirty dirty(Release release, String commit) {
+        return new Dirty(release, commit);
+    }
+
     /**
      * Wrap a version object as "dirty" indicating there are currently unstaged changes in the repository at the time of
      * version generation.
@@ -54,6 +70,43 @@ public sealed interface Version {
         };
     }
 
+    @Override
+    default int compareTo(Version other) {
+        Release release = releasePart(this);
+        Release otherRelease = releasePart(other);
+        int result = Release.ORDER.compare(release, otherRelease);
+        if (result != 0) {
+            return result;
+        }
+
+        Version clean = clean(this);
+        Version otherClean = clean(other);
+        result = switch (clean) {
+            case PreRelease p when otherClean instanceof PreRelease o -> {
+                int distance = Integer.compare(p.distance(), o.distance());
+                yield distance != 0 ? distance : p.commit().compareTo(o.commit());
+            }
+            case PreRelease _ -> -1;
+            default -> otherClean instanceof PreRelease ? 1 : 0;
+        };
+        result = result != 0 ? result : Boolean.compare(this instanceof Dirty, other instanceof Dirty);
+        return result != 0
+                ? result
+                : Comparator.nullsFirst(Comparator.<String>naturalOrder()).compare(commit(this), commit(other));
+    }
+
+    private static Version clean(Version version) {
+        return version instanceof Dirty(Version wrapped, _) ? clean(wrapped) : version;
+    }
+
+    private static String commit(Version version) {
+        return switch (version) {
+            case Release _ -> null;
+            case PreRelease p -> p.commit();
+            case Dirty d -> d.commit();
+        };
+    }
+
     record Release(int major, int minor, int patch) implements Version {
         public Release {
             checkArgument(major >= 0, "Major version must be non-negative: %s", major);
@@ -61,6 +114,46 @@ public sealed interface Version {
             checkArgument(patch >= 0, "Patch version must be non-negative: %s", patch);
         }
 
+        static final Comparator<Release> ORDER = Comparator.comparingInt(Release::major)
+                .thenComparingInt(Release::minor)
+                .thenComparingInt(Release::patch);
+
+        /**
+         * Bits given to each component in the {@link #pack() packed} form of a release.
+         */
+        static final int PACKED_BITS = 21;
+
+        /**
+         * The largest component a release can have and still be {@link #pack() packed}.
+         */
+        static final int MAX_PACKED_COMPONENT = (1 << PACKED_BITS) - 1;
+
+        /**
+         * Returns the release packed into a single {@code long} whose natural ordering is the release ordering, for
+         * compact, allocation-free storage and sorting of many releases (see {@link ReleaseIndex}).
+         *
+         * @throws IllegalArgumentException if any component exceeds {@link #MAX_PACKED_COMPONENT}
+         */
+        public long pack() {
+            checkArgument(packable(), "Release components must be at most %s to be packed: %s", MAX_PACKED_COMPONENT, this);
+            return ((long) major << (2 * PACKED_BITS)) | ((long) minor << PACKED_BITS) | patch;
+        }
+
+        public boolean packable() {
+            return major <= MAX_PACKED_COMPONENT && minor <= MAX_PACKED_COMPONENT && patch <= MAX_PACKED_COMPONENT;
+        }
+
+        /**
+         * Returns the release a value previously returned by {@link #pack()} stands for.
+         */
+        public static Release unpack(long packed) {
+            return new Release(
+                    (int) (packed >>> (2 * PACKED_BITS)) & MAX_PACKED_COMPONENT,
+                    (int) (packed >>> PACKED_BITS) & MAX_PACKED_COMPONENT,
+                    (int) packed & MAX_PACKED_COMPONENT
+            );
+        }
+
         public Release nextMajor() {
             return new Release(major + 1, 0, 0);
         }
@@ -81,7 +174,22 @@ public sealed interface Version {
         }
     }
 
-    record Dirty(Version version) implements Version {
+    /**
+     * A version with uncommitted changes on top of the given commit. A dirty pre-release carries its commit itself, for
+     * a dirty release it's the tagged commit, null if unknown.
+     */
+    record Dirty(Version version, String commit) implements Version {
+        public Dirty {
+            if (version instanceof PreRelease p) {
+                checkArgument(commit == null || commit.equals(p.commit()), "Commit must be the one of the pre-release: %s", commit);
+                commit = p.commit();
+            }
+            checkArgument(commit == null || commit.length() >= 7, "Git commit SHA should be at least the 7 character recommendation: %s", commit);
+        }
+
+        public Dirty(Version version) {
+            this(version, null);
+        }
     }
 
     /**
@@ -113,10 +221,32 @@ public sealed interface Version {
             return new GitPorcelain();
         }
 
+        /**
+         * Returns a new {@link Serde} for git-describe style versions of tags carrying the given prefix, e.g. a prefix
+         * of {@code core/} for tags like {@code core/v1.2.3}.
+         *
+         * <p>Use this for the tags of individual projects in a monorepo.
+         */
+        static Serde gitPorcelain(String tagPrefix) {
+            return new GitPorcelain(tagPrefix);
+        }
+
         String serialize(Version version);
 
         Version parse(String versionString);
 
+        /**
+         * Returns true if the given string is a plain release in this format, e.g. to pick the release tags out of all
+         * the tags of a repository.
+         */
+        default boolean isRelease(String versionString) {
+            try {
+                return parse(versionString) instanceof Release;
+            } catch (IllegalVersionException e) {
+                return false;
+            }
+        }
+
         final class IllegalVersionException extends RuntimeException {
             public IllegalVersionException(String versionString) {
                 super(String.format("Unable to parse version string %s into one of the supported version formats.", versionString));
@@ -144,13 +274,16 @@ public sealed interface Version {
                 if (preReleaseMatcher.find()) {
                     Release release = parseRelease(preReleaseMatcher);
 
-                    PreRelease preRelease = preRelease(
-                            release,
-                            Integer.parseInt(preReleaseMatcher.group("distance")),
-                            preReleaseMatcher.group("commit")
-                    );
+                    int distance = Integer.parseInt(preReleaseMatcher.group("distance"));
+                    String commit = preReleaseMatcher.group("commit");
+                    boolean dirty = versionString.endsWith(".dirty");
+
+                    if (distance == 0 && dirty) {
+                        return dirty(release, commit);
+                    }
 
-                    return versionString.endsWith(".dirty") ? dirty(preRelease) : preRelease;
+                    PreRelease preRelease = preRelease(release, distance, commit);
+                    return dirty ? dirty(preRelease) : preRelease;
                 }
 
                 throw new IllegalVersionException(versionString);
@@ -165,9 +298,159 @@ public sealed interface Version {
             }
         }
 
+        /**
+         * Single-pass, character-level parser for the built-in formats, i.e. versions shaped like
+         * {@code <prefix>M.m.p} or {@code <prefix>M.m.p<distancePrefix>d<commitPrefix>ccccccc[.dirty]}.
+         *
+         * <p>Produces exactly the results of the equivalent {@link RegexParser} (including the handling of a single
+         * trailing line terminator, as {@code $} allows) without compiling patterns, creating matchers or substrings
+         * for anything but the commit.
+         */
+        record ScanningParser(String releasePrefix, String distancePrefix, String commitPrefix) {
+
+            private static final String DIRTY = ".dirty";
+
+            private static final int COMMIT_LENGTH = 7;
+
+            public Version parse(String versionString) {
+                int end = contentEnd(versionString);
+
+                int majorStart = expect(versionString, 0, end, releasePrefix);
+                int majorEnd = number(versionString, majorStart, end);
+                int minorStart = expect(versionString, majorEnd, end, ".");
+                int minorEnd = number(versionString, minorStart, end);
+                int patchStart = expect(versionString, minorEnd, end, ".");
+                int patchEnd = number(versionString, patchStart, end);
+
+                if (patchEnd == end) {
+                    return parseRelease(versionString, majorStart, majorEnd, minorStart, minorEnd, patchStart, patchEnd);
+                }
+
+                int distanceStart = expect(versionString, patchEnd, end, distancePrefix);
+                int distanceEnd = number(versionString, distanceStart, end);
+                int commitStart = expect(versionString, distanceEnd, end, commitPrefix);
+                int commitEnd = commit(versionString, commitStart, end);
+
+                boolean dirty = false;
+                if (commitEnd != end) {
+                    if (expect(versionString, commitEnd, end, DIRTY) != end) {
+                        throw new IllegalVersionException(versionString);
+                    }
+                    // mirrors RegexParser, which only honors the suffix if it's the literal end of the string
+                    dirty = end == versionString.length();
+                }
+
+                Release release = parseRelease(versionString, majorStart, majorEnd, minorStart, minorEnd, patchStart, patchEnd);
+                int distance = parseInt(versionString, distanceStart, distanceEnd);
+                String commit = versionString.substring(commitStart, commitEnd);
+
+                if (distance == 0 && dirty) {
+                    return dirty(release, commit);
+                }
+
+                PreRelease preRelease = preRelease(release, distance, commit);
+                return dirty ? dirty(preRelease) : preRelease;
+            }
+
+            private static Release parseRelease(String s, int majorStart, int majorEnd, int minorStart, int minorEnd,
+                                                int patchStart, int patchEnd) {
+                return release(
+                        parseInt(s, majorStart, majorEnd),
+                        parseInt(s, minorStart, minorEnd),
+                        parseInt(s, patchStart, patchEnd)
+                );
+            }
+
+            /**
+             * Returns the end of the version content, excluding a single trailing line terminator as {@code $} would.
+             */
+            private static int contentEnd(String s) {
+                int length = s.length();
+                if (length >= 2 && s.charAt(length - 2) == '\r' && s.charAt(length - 1) == '\n') {
+                    return length - 2;
+                }
+                if (length >= 1) {
+                    char last = s.charAt(length - 1);
+                    if (last == '\n' || last == '\r' || last == '\u0085' || last == '\u2028' || last == '\u2029') {
+                        return length - 1;
+                    }
+                }
+                return length;
+            }
+
+            /**
+             * Returns the position after the expected literal, failing the parse if it isn't there.
+             */
+            private static int expect(String s, int position, int end, String literal) {
+                if (!s.startsWith(literal, position) || position + literal.length() > end) {
+                    throw new IllegalVersionException(s);
+                }
+                return position + literal.length();
+            }
+
+            /**
+             * Returns the position after a number matching {@code 0|[1-9]\d*}, failing the parse if there isn't one.
+             */
+            private static int number(String s, int position, int end) {
+                if (position >= end) {
+                    throw new IllegalVersionException(s);
+                }
+                char first = s.charAt(position);
+                if (first == '0') {
+                    return position + 1;
+                }
+                if (first < '1' || first > '9') {
+                    throw new IllegalVersionException(s);
+                }
+                int current = position + 1;
+                while (current < end && isDigit(s.charAt(current))) {
+                    current++;
+                }
+                return current;
+            }
+
+            /**
+             * Returns the position after a commit hash matching {@code [a-z0-9]{7}}, failing the parse if there isn't one.
+             */
+            private static int commit(String s, int position, int end) {
+                if (position + COMMIT_LENGTH > end) {
+                    throw new IllegalVersionException(s);
+                }
+                for (int i = position; i < position + COMMIT_LENGTH; i++) {
+                    char c = s.charAt(i);
+                    if (!isDigit(c) && (c < 'a' || c > 'z')) {
+                        throw new IllegalVersionException(s);
+                    }
+                }
+                return position + COMMIT_LENGTH;
+            }
+
+            /**
+             * Parses an already validated run of digits, overflow is reported the same way {@link Integer#parseInt}
+             * reports it.
+             */
+            private static int parseInt(String s, int start, int end) {
+                int value = 0;
+                for (int i = start; i < end; i++) {
+                    int digit = s.charAt(i) - '0';
+                    if (value > (Integer.MAX_VALUE - digit) / 10) {
+                        throw new NumberFormatException(String.format("For input string: \"%s\"", s.substring(start, end)));
+                    }
+                    value = value * 10 + digit;
+                }
+                return value;
+            }
+
+            private static boolean isDigit(char c) {
+                return c >= '0' && c <= '9';
+            }
+        }
+
         record Java() implements Serde {
 
-            private static final RegexParser PARSER = new RegexParser(
+            private static final ScanningParser PARSER = new ScanningParser("", "-alpha", "+");
+
+            static final RegexParser REGEX_PARSER = new RegexParser(
                     Pattern.compile("^(?<major>0|[1-9]\\d*)\\.(?<minor>0|[1-9]\\d*)\\.(?<patch>0|[1-9]\\d*)$"),
                     Pattern.compile("^(?<major>0|[1-9]\\d*)\\.(?<minor>0|[1-9]\\d*)\\.(?<patch>0|[1-9]\\d*)-alpha(?<distance>0|[1-9]\\d*)\\+(?<commit>[a-z0-9]{7})(\\.dirty)?$")
             );
@@ -175,6 +458,7 @@ public sealed interface Version {
             @Override
             public String serialize(Version version) {
                 return switch (version) {
+                    case Dirty(Release r, String commit) when commit != null -> String.format("%s-alpha0+%s.dirty", serialize(r), commit);
                     case Dirty d -> String.format("%s.dirty", serialize(d.version));
                     case Release r -> String.format("%s.%s.%s", r.major, r.minor, r.patch);
                     case PreRelease s -> String.format("%s-alpha%s+%s", serialize(s.release), s.distance, s.commit);
@@ -187,25 +471,41 @@ public sealed interface Version {
             }
         }
 
-        record GitPorcelain() implements Serde {
+        record GitPorcelain(String tagPrefix) implements Serde {
+
+            private static final ScanningParser PARSER = new ScanningParser("v", "-", "-g");
 
-            private static final RegexParser PARSER = new RegexParser(
+            static final RegexParser REGEX_PARSER = new RegexParser(
                     Pattern.compile("^v(?<major>0|[1-9]\\d*)\\.(?<minor>0|[1-9]\\d*)\\.(?<patch>0|[1-9]\\d*)$"),
                     Pattern.compile("^v(?<major>0|[1-9]\\d*)\\.(?<minor>0|[1-9]\\d*)\\.(?<patch>0|[1-9]\\d*)-(?<distance>0|[1-9]\\d*)-g(?<commit>[a-z0-9]{7})(\\.dirty)?$")
             );
 
+            public GitPorcelain() {
+                this("");
+            }
+
             @Override
             public String serialize(Version version) {
                 return switch (version) {
+                    case Dirty(Release r, String commit) when commit != null -> String.format("%s-0-g%s.dirty", serialize(r), commit);
                     case Dirty d -> String.format("%s.dirty", serialize(d.version));
-                    case Release r -> String.format("v%s.%s.%s", r.major, r.minor, r.patch);
+                    case Release r -> String.format("%sv%s.%s.%s", tagPrefix, r.major, r.minor, r.patch);
                     case PreRelease s -> String.format("%s-%s-g%s", serialize(s.release), s.distance, s.commit);
                 };
             }
 
             @Override
             public Version parse(String versionString) {
-                return PARSER.parse(versionString);
+                ScanningParser parser = tagPrefix.isEmpty() ? PARSER : new ScanningParser(tagPrefix + "v", "-", "-g");
+                return parser.parse(versionString);
+            }
+
+            /**
+             * Deployment markers, nightlies and the like are turned away by their prefix alone, without a failed parse.
+             */
+            @Override
+            public boolean isRelease(String versionString) {
+                return versionString.startsWith(tagPrefix + "v") && Serde.super.isRelease(versionString);
             }
         }
     }
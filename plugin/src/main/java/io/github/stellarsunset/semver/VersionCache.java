@@ -0,0 +1,263 @@
+package io.github.stellarsunset.semver;
+
+import com.google.common.hash.Hashing;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * Persistent cache of resolved versions stored in the common git directory of the repository (see {@link GitDir}),
+ * keyed by the {@link RefState} of the repository so unchanged checkouts never need to consult git.
+ *
+ * <p>Entries are replaced by writing a temporary file and atomically moving it over the old one, so concurrent daemons
+ * sharing a checkout only ever observe complete entries. Racing writers may both compute the version, but since each
+ * entry carries its own key whichever one lands last is still correct for the state it was computed against.
+ *
+ * <p>A stale entry still records the HEAD and tags it was computed against, so when only HEAD moved the new version can
+ * be derived from it by an {@link Incremental} resolver walking just the new commits.
+ *
+ * <p>Each worktree of the repository has an entry of its own, and since they all share the same tags a worktree without
+ * a valid entry reuses the version of another one at the same HEAD as is, or derives its version from theirs. Entries
+ * record the git directory they belong to and are pruned once it's gone (e.g. the worktree was removed), and only the
+ * most recently written {@link #MAX_ENTRIES} are kept at all.
+ */
+record VersionCache(File dir) {
+
+    private static final Logger LOGGER = Logging.getLogger(VersionCache.class);
+
+    private static final Version.Serde SERDE = Version.Serde.gitPorcelain();
+
+    private static final String GIT_DIR = "gitDir";
+    private static final String KEY = "key";
+    private static final String HEAD = "head";
+    private static final String TAGS = "tags";
+    private static final String VERSION = "version";
+
+    /**
+     * Most entries of other worktrees tried as anchors of an incremental resolution, each may cost a short walk.
+     */
+    private static final int MAX_ANCHORS = 4;
+
+    /**
+     * Most entries kept in the cache, older ones are deleted the next time the entries of other worktrees are read.
+     */
+    static final int MAX_ENTRIES = 16;
+
+    /**
+     * Derives the current version from the one resolved for an earlier HEAD with identical tags.
+     */
+    @FunctionalInterface
+    interface Incremental {
+
+        /**
+         * Returns the version of the current HEAD given the version of the provided (previous HEAD) commit, empty if it
+         * can't be derived incrementally and a full resolution is required.
+         */
+        Optional<Version> since(String commit, Version version);
+
+        static Incremental none() {
+            return (_, _) -> Optional.empty();
+        }
+    }
+
+    private record Entry(String gitDir, String key, String head, String tags, Version version) {
+
+        /**
+         * Returns true if the git directory the entry was written for is known not to exist anymore.
+         */
+        boolean orphaned() {
+            return gitDir != null && !new File(gitDir).isDirectory();
+        }
+    }
+
+    /**
+     * Returns the cache rooted in the provided directory, the common git directory of the repository or (outside of
+     * one) the Gradle project cache directory.
+     */
+    static VersionCache in(File dir) {
+        return new VersionCache(new File(dir, "auto-semver"));
+    }
+
+    /**
+     * Returns the cached version for the repository if it's still valid, otherwise computes it with the provided
+     * supplier and stores it for subsequent builds.
+     */
+    Version get(File gitDir, Supplier<Version> compute) {
+        return get(gitDir, compute, Incremental.none());
+    }
+
+    /**
+     * Returns the cached version for the repository if it's still valid, otherwise derives it incrementally from the
+     * stale entry when only HEAD moved, falling back to computing it from scratch with the provided supplier.
+     */
+    Version get(File gitDir, Supplier<Version> compute, Incremental incremental) {
+        Optional<RefState> state = RefState.read(gitDir);
+        if (state.isEmpty()) {
+            return compute.get();
+        }
+
+        Path path = entry(gitDir);
+        Optional<Entry> previous;
+        try (var _ = Metrics.span(Metrics.Stage.CACHE, "read " + path.getFileName())) {
+            previous = read(path);
+        }
+
+        if (previous.isPresent() && previous.get().key().equals(state.get().key())) {
+            Metrics.count(Metrics.Counter.CACHE_HITS);
+            return previous.get().version();
+        }
+
+        // entries computed against the same tags, this worktree's own first
+        List<Entry> anchors = new ArrayList<>();
+        previous.ifPresent(anchors::add);
+        try (var _ = Metrics.span(Metrics.Stage.CACHE, "read worktrees")) {
+            anchors.addAll(others(path));
+        }
+        anchors.removeIf(entry -> entry.head() == null || !state.get().tagsKey().equals(entry.tags()));
+
+        // the version only depends on HEAD and the tags, whichever worktree (or index) it was computed for
+        Optional<Version> shared = anchors.stream()
+                .filter(entry -> entry.head().equals(state.get().head()))
+                .map(Entry::version)
+                .findFirst();
+        if (shared.isPresent()) {
+            Metrics.count(Metrics.Counter.CACHE_HITS);
+            return store(path, gitDir, state.get(), shared.get());
+        }
+        Metrics.count(Metrics.Counter.CACHE_MISSES);
+
+        Optional<Version> derived = anchors.stream()
+                .limit(MAX_ANCHORS + (previous.isPresent() ? 1 : 0))
+                .map(entry -> incremental.since(entry.head(), entry.version()))
+                .flatMap(Optional::stream)
+                .findFirst();
+        derived.ifPresent(_ -> Metrics.count(Metrics.Counter.CACHE_INCREMENTAL));
+
+        return store(path, gitDir, state.get(), derived.orElseGet(compute));
+    }
+
+    private Version store(Path path, File gitDir, RefState state, Version version) {
+        try (var _ = Metrics.span(Metrics.Stage.CACHE, "write " + path.getFileName())) {
+            write(path, gitDir, state, version);
+        }
+        return version;
+    }
+
+    private Path entry(File gitDir) {
+        String name = Hashing.murmur3_128().hashString(gitDir.getAbsolutePath(), StandardCharsets.UTF_8).toString();
+        return dir.toPath().resolve(String.format("version-%s.properties", name));
+    }
+
+    /**
+     * Returns the entries of the other worktrees sharing the cache, most recently written first, deleting those past
+     * {@link #MAX_ENTRIES} and those of git directories that no longer exist along the way.
+     */
+    private List<Entry> others(Path own) {
+        File[] files = dir.listFiles((_, name) -> name.startsWith("version-") && name.endsWith(".properties"));
+        if (files == null) {
+            return List.of();
+        }
+        List<Path> paths = Arrays.stream(files)
+                .map(File::toPath)
+                .filter(path -> !path.equals(own))
+                .sorted(Comparator.comparingLong((Path path) -> path.toFile().lastModified()).reversed())
+                .toList();
+
+        List<Entry> entries = new ArrayList<>();
+        for (Path path : paths) {
+            // this worktree's own entry counts against the limit too
+            if (entries.size() >= MAX_ENTRIES - 1) {
+                delete(path);
+                continue;
+            }
+            Optional<Entry> entry = read(path);
+            if (entry.isPresent() && entry.get().orphaned()) {
+                delete(path);
+            } else {
+                entry.ifPresent(entries::add);
+            }
+        }
+        return entries;
+    }
+
+    private static void delete(Path entry) {
+        try {
+            Files.deleteIfExists(entry);
+        } catch (IOException e) {
+            LOGGER.debug("Unable to delete version cache entry {}: {}", entry, e.getMessage());
+        }
+    }
+
+    private Optional<Entry> read(Path entry) {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(entry)) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            LOGGER.debug("Unable to read version cache entry {}: {}", entry, e.getMessage());
+            return Optional.empty();
+        }
+
+        String key = properties.getProperty(KEY);
+        String version = properties.getProperty(VERSION);
+        if (key == null || version == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new Entry(properties.getProperty(GIT_DIR), key, properties.getProperty(HEAD),
+                    properties.getProperty(TAGS), SERDE.parse(version)));
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void write(Path entry, File gitDir, RefState state, Version version) {
+        Properties properties = new Properties();
+        properties.setProperty(GIT_DIR, gitDir.getAbsolutePath());
+        properties.setProperty(KEY, state.key());
+        properties.setProperty(HEAD, state.head());
+        properties.setProperty(TAGS, state.tagsKey());
+        properties.setProperty(VERSION, SERDE.serialize(version));
+        try {
+            Files.createDirectories(entry.getParent());
+            Path temp = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    properties.store(out, null);
+                }
+                move(temp, entry);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // the cache is purely an optimization, failing to write it should never fail the build
+            LOGGER.debug("Unable to write version cache entry {}: {}", entry, e.getMessage());
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.problems.Problems;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.UntrackedTask;
+import org.gradle.process.ExecOperations;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes the version each of a list of past commits (or every commit of a range) would have been built with, e.g. to
+ * backfill the version of artifacts published before the plugin was adopted.
+ *
+ * <p>All the commits are resolved together by {@link Git#versionsOf(java.util.List)} and {@link Git#versionsIn(String)}
+ * in a single pass over the history rather than one {@code git describe} per commit.
+ */
+@SuppressWarnings("UnstableApiUsage")
+@UntrackedTask(because = "The versions depend on the state of the repository, which isn't modeled as an input.")
+public abstract class VersionHistoryTask extends DefaultTask {
+
+    private static final Version.Serde SERDE = Version.Serde.java();
+
+    /**
+     * The format of the written file.
+     */
+    public enum Format {
+        CSV, JSON
+    }
+
+    @Override
+    public String getDescription() {
+        return "Write the version of each of the provided commits (-Pcommits) or of every commit in a range (-Prange)";
+    }
+
+    /**
+     * Commits to resolve the version of, anything {@code git rev-parse} understands (ids, tags, branches).
+     */
+    @Input
+    public abstract ListProperty<String> getCommits();
+
+    /**
+     * Range of commits to resolve the version of, anything {@code git rev-list} understands (e.g.
+     * {@code v1.0.0..HEAD}). Resolved in addition to the listed commits, parents before children.
+     */
+    @Input
+    @Optional
+    public abstract Property<String> getRange();
+
+    @Input
+    public abstract Property<Format> getFormat();
+
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
+
+    @Internal
+    public abstract DirectoryProperty getProjectDirectory();
+
+    /**
+     * How long a single git command may run before it's stopped, see {@link PluginOptions#timeout()}.
+     */
+    @Internal
+    public abstract Property<Duration> getCommandTimeout();
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @Inject
+    protected abstract Problems getProblems();
+
+    @TaskAction
+    public void write() throws IOException {
+        Git git = new Git(getProjectDirectory().get().getAsFile(), getExecOperations(), getProblems().getReporter(),
+                getCommandTimeout().getOrElse(GitProcess.DEFAULT_TIMEOUT));
+
+        Map<String, Version> versions = new LinkedHashMap<>();
+        if (!getCommits().get().isEmpty()) {
+            versions.putAll(git.versionsOf(getCommits().get()));
+        }
+        if (getRange().isPresent()) {
+            versions.putAll(git.versionsIn(getRange().get()));
+        }
+
+        Path output = getOutputFile().get().getAsFile().toPath();
+        Files.createDirectories(output.getParent());
+        try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            switch (getFormat().get()) {
+                case CSV -> writeCsv(writer, versions);
+                case JSON -> writeJson(writer, versions);
+            }
+        }
+
+        getLogger().lifecycle("Wrote the versions of {} commits to {}", versions.size(), output);
+    }
+
+    private static void writeCsv(Writer writer, Map<String, Version> versions) throws IOException {
+        writer.write("commit,version\n");
+        for (Map.Entry<String, Version> entry : versions.entrySet()) {
+            writer.write(String.format("%s,%s\n", entry.getKey(), SERDE.serialize(entry.getValue())));
+        }
+    }
+
+    /**
+     * Commit ids and versions never need escaping, so the JSON is written directly rather than pulling in a library.
+     */
+    private static void writeJson(Writer writer, Map<String, Version> versions) throws IOException {
+        writer.write("[");
+        String separator = "\n";
+        for (Map.Entry<String, Version> entry : versions.entrySet()) {
+            writer.write(String.format("%s  {\"commit\": \"%s\", \"version\": \"%s\"}",
+                    separator, entry.getKey(), SERDE.serialize(entry.getValue())));
+            separator = ",\n";
+        }
+        writer.write("\n]\n");
+    }
+}
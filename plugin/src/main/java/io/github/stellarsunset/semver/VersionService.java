@@ -0,0 +1,251 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.process.ExecOperations;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Shared {@link BuildService} memoizing the resolved {@link Version} of each git repository for the lifetime of a build.
+ *
+ * <p>Every project applying the plugin asks this service for its version, so a multi-project build only describes each
+ * repository once rather than once per project (monorepos describe the scopes of all their projects in one go). The
+ * service is registered against the root build so included builds living in the same repository share the result as
+ * well.
+ *
+ * <p>Whether a work tree is dirty is memoized the same way, per HEAD and index of its git directory, so the projects of
+ * a build (and the configuration cache checking their ref states) stat the tracked files once rather than once each.
+ *
+ * <p>The service also owns the {@link CatFile} co-processes its reads start, stopping them when the build finishes.
+ *
+ * <p>Shallow clones are deepened from the remote named by {@link PluginOptions#deepen()}, if any, before their versions
+ * are first resolved.
+ *
+ * <p>Once the build finishes the service logs what resolving the versions cost (at info level, see {@link Metrics}) and,
+ * if asked to, writes it as a report loadable in {@code chrome://tracing}.
+ */
+public abstract class VersionService implements BuildService<VersionService.Parameters>, AutoCloseable {
+
+    private static final Logger LOGGER = Logging.getLogger(VersionService.class);
+
+    /**
+     * Builds loading the plugin through different classloaders can't share an instance, so the classloader is part of
+     * the registration name.
+     */
+    private static final String NAME = String.format("autoSemverVersions@%x",
+            System.identityHashCode(VersionService.class.getClassLoader()));
+
+    private static final Executor DIRECT = Runnable::run;
+
+    private static final Executor VIRTUAL = command -> Thread.ofVirtual().name("auto-semver").start(command);
+
+    private final ConcurrentMap<File, CompletableFuture<Version>> versions = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Scopes, CompletableFuture<Map<Git.Scope, Version>>> scoped = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<WorkTreeState, Boolean> dirty = new ConcurrentHashMap<>();
+
+    private final CatFile.Pool catFiles =
+            new CatFile.Pool(getParameters().getTimeout().getOrElse(GitProcess.DEFAULT_TIMEOUT));
+
+    /**
+     * Every scope of a monorepo is resolved in the same walk, so they're memoized as one unit.
+     */
+    private record Scopes(File gitDir, List<Git.Scope> scopes) {
+    }
+
+    /**
+     * The work tree of a git directory as of a given {@link RefState#refsKey()} and stat of its index, staging or
+     * committing anything changes one or the other.
+     */
+    private record WorkTreeState(File gitDir, String refs, Object indexKey, FileTime indexModified, long indexSize) {
+
+        static WorkTreeState of(File gitDir, String refs) {
+            try {
+                BasicFileAttributes index = Files.readAttributes(new File(gitDir, "index").toPath(), BasicFileAttributes.class);
+                return new WorkTreeState(gitDir, refs, index.fileKey(), index.lastModifiedTime(), index.size());
+            } catch (IOException e) {
+                return new WorkTreeState(gitDir, refs, null, null, -1);
+            }
+        }
+    }
+
+    public interface Parameters extends BuildServiceParameters {
+        /**
+         * File the timings and counters of the build are written to, none if absent.
+         */
+        RegularFileProperty getReportFile();
+
+        /**
+         * Remote shallow clones are deepened from, none if absent.
+         */
+        Property<String> getDeepen();
+
+        /**
+         * Longest any request to a {@link CatFile} co-process may take, {@link GitProcess#DEFAULT_TIMEOUT} if absent.
+         */
+        Property<Duration> getTimeout();
+    }
+
+    /**
+     * Registers (or returns the already registered) service against the root build of the provided build, writing the
+     * report under the build directory of the given root directory when enabled by {@link PluginOptions#report()}.
+     */
+    static Provider<VersionService> register(Gradle gradle, File rootDir, PluginOptions options) {
+        Gradle root = gradle;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        Provider<VersionService> service = root.getSharedServices().registerIfAbsent(NAME, VersionService.class, spec -> {
+            if (options.report()) {
+                spec.getParameters().getReportFile().set(new File(rootDir, "build/autoSemver/report.json"));
+            }
+            spec.getParameters().getTimeout().set(options.timeout());
+            if (!options.deepen().isEmpty()) {
+                spec.getParameters().getDeepen().set(options.deepen());
+            }
+        });
+        if (options.report()) {
+            // started right away, so builds that never resolve a version (e.g. in lazy mode) still report as much
+            service.get();
+        }
+        return service;
+    }
+
+    /**
+     * Returns the version of the repository the provided {@link Git} points at, computing it on first request unless a
+     * still-valid entry is available in the persistent cache.
+     */
+    Version version(Git git, VersionCache cache) {
+        return join(resolve(git, cache, DIRECT));
+    }
+
+    /**
+     * Same as {@link #version(Git, VersionCache)} but computed on a background virtual thread, so the caller can carry
+     * on configuring the build and {@link #join(CompletableFuture)} the result once it's actually needed.
+     */
+    CompletableFuture<Version> versionAsync(Git git, VersionCache cache) {
+        return resolve(git, cache, VIRTUAL);
+    }
+
+    /**
+     * Returns the version of one scope of a monorepo, resolving all the provided scopes together on first request.
+     */
+    Version version(Git git, Git.Scope scope, List<Git.Scope> scopes) {
+        return join(resolve(git, scope, scopes, DIRECT));
+    }
+
+    /**
+     * Same as {@link #version(Git, Git.Scope, List)} but computed on a background virtual thread.
+     */
+    CompletableFuture<Version> versionAsync(Git git, Git.Scope scope, List<Git.Scope> scopes) {
+        return resolve(git, scope, scopes, VIRTUAL);
+    }
+
+    /**
+     * Waits for an asynchronously resolved version, rethrowing resolution failures (e.g. the exceptions thrown by the
+     * problem reporter) exactly as a synchronous call would have.
+     */
+    static Version join(CompletableFuture<Version> version) {
+        try {
+            return version.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns true if the work tree of the given git directory has uncommitted changes, see
+     * {@link WorkTree#isDirty(File, CatFile.Pool, ExecOperations, Duration)}, checking it once per HEAD and index.
+     */
+    boolean isDirty(File gitDir, String refs, ExecOperations exec, Duration timeout) {
+        return dirty.computeIfAbsent(WorkTreeState.of(gitDir, refs), _ -> WorkTree.isDirty(gitDir, catFiles, exec, timeout));
+    }
+
+    private CompletableFuture<Version> resolve(Git git, VersionCache cache, Executor executor) {
+        Git shared = git.withCatFiles(catFiles);
+        return versions.computeIfAbsent(shared.gitDir(), gitDir -> CompletableFuture.supplyAsync(() -> {
+            try (var _ = Metrics.span(Metrics.Stage.RESOLVE, "version " + gitDir)) {
+                deepen(shared, List.of(Git.Scope.ROOT));
+                return cache.get(gitDir, shared::version, shared::versionSince);
+            }
+        }, executor));
+    }
+
+    private CompletableFuture<Version> resolve(Git git, Git.Scope scope, List<Git.Scope> scopes, Executor executor) {
+        Git shared = git.withCatFiles(catFiles);
+        return scoped.computeIfAbsent(new Scopes(shared.gitDir(), List.copyOf(scopes)), key ->
+                        CompletableFuture.supplyAsync(() -> {
+                            try (var _ = Metrics.span(Metrics.Stage.RESOLVE, "scopes " + key.gitDir())) {
+                                deepen(shared, key.scopes());
+                                return shared.versions(key.scopes());
+                            }
+                        }, executor))
+                .thenApply(versions -> versions.get(scope));
+    }
+
+    private void deepen(Git git, List<Git.Scope> scopes) {
+        if (getParameters().getDeepen().isPresent()) {
+            git.deepen(getParameters().getDeepen().get(), scopes);
+        }
+    }
+
+    @Override
+    public void close() {
+        catFiles.close();
+
+        Metrics.Snapshot snapshot = Metrics.drain();
+        if (!snapshot.isEmpty()) {
+            log(snapshot);
+        }
+
+        if (getParameters().getReportFile().isPresent()) {
+            File report = getParameters().getReportFile().get().getAsFile();
+            try {
+                snapshot.write(report.toPath());
+                LOGGER.lifecycle("Wrote the auto-semver report to {}", report);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to write the auto-semver report to {}: {}", report, e.getMessage());
+            }
+        }
+    }
+
+    private static void log(Metrics.Snapshot snapshot) {
+        Map<Metrics.Stage, Long> totals = snapshot.totals();
+        Map<Metrics.Counter, Long> counters = snapshot.counters();
+        LOGGER.info("auto-semver resolved versions in {}ms ({}ms walking history, {}ms in {} git processes), "
+                        + "cache hits: {}, misses: {}",
+                millis(totals.get(Metrics.Stage.RESOLVE)), millis(totals.get(Metrics.Stage.WALK)),
+                millis(totals.get(Metrics.Stage.SPAWN)), counters.get(Metrics.Counter.PROCESSES),
+                counters.get(Metrics.Counter.CACHE_HITS), counters.get(Metrics.Counter.CACHE_MISSES));
+    }
+
+    private static long millis(Long nanos) {
+        return nanos == null ? 0 : nanos / 1_000_000;
+    }
+}
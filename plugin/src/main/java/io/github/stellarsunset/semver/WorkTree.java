@@ -0,0 +1,316 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.process.ExecOperations;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Checks whether the work tree of a repository has uncommitted changes to tracked files, the way
+ * {@code git describe --dirty} decides whether to mark its output. Untracked files never make a tree dirty.
+ *
+ * <p>The index is compared to HEAD's tree, skipping every directory whose cache-tree id already matches, and each
+ * tracked file to its index entry by stat data alone. Only files whose stat data changed, or that changed too close to
+ * the index being written for their stat data to be trusted ("racily clean"), are read and hashed. Anything this check
+ * can't settle by itself, e.g. a changed file whose content may just differ by a clean filter or line ending
+ * conversion configured outside the repository, comes back {@link Status#UNKNOWN} for the git CLI to decide.
+ */
+final class WorkTree {
+
+    private static final Logger LOGGER = Logging.getLogger(WorkTree.class);
+
+    private static final int TYPE_MASK = 0170000;
+    private static final int TREE = 0040000;
+    private static final int REGULAR_FILE = 0100000;
+    private static final int SYMLINK = 0120000;
+    private static final int GITLINK = 0160000;
+    private static final int EXECUTABLE = 0100;
+
+    /**
+     * Whether the platform exposes the full {@code lstat} data (inode, ctime, mode) git records in the index.
+     */
+    private static final boolean UNIX_ATTRIBUTES = FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+
+    /**
+     * Ordered by precedence, a single dirty file settles the whole tree no matter what else is unknown.
+     */
+    enum Status {
+        CLEAN, UNKNOWN, DIRTY
+    }
+
+    private WorkTree() {
+    }
+
+    /**
+     * Returns true if the tracked files of the work tree of the given git directory differ from HEAD, checked
+     * in-process (reading objects through the given pool's co-processes) where possible and otherwise with
+     * {@code git diff --quiet HEAD}.
+     *
+     * @throws GradleException if {@code git diff} or {@code git cat-file} runs past the timeout
+     */
+    static boolean isDirty(File gitDir, CatFile.Pool catFiles, ExecOperations exec, Duration timeout) {
+        Status status;
+        try (GitReader reader = catFiles == null ? GitReader.open(gitDir, timeout) : GitReader.open(gitDir, catFiles);
+             var _ = Metrics.span(Metrics.Stage.STATUS, "status " + gitDir)) {
+            status = reader.status();
+        } catch (CatFile.TimedOutException e) {
+            throw timedOut(gitDir, e.commandLine(), timeout, "", e.getCause());
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.debug("Falling back to the git CLI to check the work tree of {}: {}", gitDir, e.getMessage());
+            status = Status.UNKNOWN;
+        }
+        return switch (status) {
+            case CLEAN -> false;
+            case DIRTY -> true;
+            case UNKNOWN -> {
+                Metrics.count(Metrics.Counter.FALLBACKS);
+                yield isDirtyWithCommand(GitDir.of(gitDir).workTree(), exec, timeout);
+            }
+        };
+    }
+
+    private static boolean isDirtyWithCommand(File workTree, ExecOperations exec, Duration timeout) {
+        List<String> commandLine = List.of("git", "diff", "--quiet", "HEAD", "--");
+        return switch (GitProcess.run(exec, workTree, timeout, commandLine, _ -> {})) {
+            case GitProcess.Result.Success _ -> false;
+            // anything but "differences found" (e.g. no commit yet, no work tree) leaves nothing to mark as dirty
+            case GitProcess.Result.Failure failure -> failure.exitValue() == 1;
+            // only ever asked for with autoSemver.dirty=true, where silently assuming a clean tree would be wrong
+            case GitProcess.Result.TimedOut timedOut ->
+                    throw timedOut(workTree, String.join(" ", commandLine), timeout, timedOut.stderr(), timedOut.e());
+        };
+    }
+
+    private static GradleException timedOut(File workTree, String commandLine, Duration timeout, String stderr,
+                                            TimeoutException e) {
+        return new GradleException(String.format(
+                "Unable to check the work tree %s for changes, '%s' was stopped after %s. Check for another git "
+                        + "process holding a lock on the repository (e.g. a stale index.lock), or increase the "
+                        + "timeout via autoSemver.timeout (in seconds).%n%s",
+                workTree, commandLine, timeout, stderr), e);
+    }
+
+    /**
+     * Compares the work tree and index of the given git directory to the provided HEAD commit.
+     */
+    static Status status(ObjectDatabase objects, String head, File gitDir) throws IOException {
+        GitDir dir = GitDir.of(gitDir);
+        if (!dir.hasWorkTree() || !new File(gitDir, "index").isFile()) {
+            return Status.UNKNOWN;
+        }
+        GitIndex index = GitIndex.read(gitDir);
+
+        Status staged = compareToTree(objects, objects.commit(head).tree(), index);
+        if (staged != Status.CLEAN) {
+            return staged;
+        }
+        Path workTree = dir.workTree().toPath();
+        return index.entries().parallelStream()
+                .map(entry -> compareToFile(workTree, entry, index.modified()))
+                .reduce(Status.CLEAN, WorkTree::worst);
+    }
+
+    /**
+     * Compares the staged entries of the index to the given tree.
+     */
+    private static Status compareToTree(ObjectDatabase objects, String tree, GitIndex index) throws IOException {
+        Map<String, GitIndex.Entry> entries = new HashMap<>();
+        for (GitIndex.Entry entry : index.entries()) {
+            if (entry.stage() != 0) {
+                // an unresolved merge conflict
+                return Status.DIRTY;
+            }
+            if (entry.intentToAdd()) {
+                return Status.UNKNOWN;
+            }
+            entries.put(entry.path(), entry);
+        }
+
+        int[] matched = new int[1];
+        Status status = compareToTree(objects, tree, "", index.trees(), entries, matched);
+        if (status != Status.CLEAN) {
+            return status;
+        }
+        // every entry of the tree has its match in the index, anything left over was added
+        return matched[0] == entries.size() ? Status.CLEAN : Status.DIRTY;
+    }
+
+    private static Status compareToTree(ObjectDatabase objects, String tree, String path,
+                                        Map<String, GitIndex.CachedTree> cached, Map<String, GitIndex.Entry> entries,
+                                        int[] matched) throws IOException {
+        GitIndex.CachedTree cachedTree = cached.get(path);
+        if (cachedTree != null && cachedTree.id().equals(tree)) {
+            matched[0] += cachedTree.entryCount();
+            return Status.CLEAN;
+        }
+
+        ObjectDatabase.Tree parsed = objects.tree(tree);
+        for (Map.Entry<String, String> child : parsed.entries().entrySet()) {
+            String childPath = path.isEmpty() ? child.getKey() : path + "/" + child.getKey();
+            int mode = parsed.modes().get(child.getKey());
+
+            Status status;
+            if ((mode & TYPE_MASK) == TREE) {
+                status = compareToTree(objects, child.getValue(), childPath, cached, entries, matched);
+            } else {
+                GitIndex.Entry entry = entries.get(childPath);
+                if (entry == null || !entry.id().equals(child.getValue())) {
+                    status = Status.DIRTY;
+                } else {
+                    // trees written by ancient git versions may carry non-canonical modes, like 0100664
+                    status = entry.mode() == mode ? Status.CLEAN : Status.UNKNOWN;
+                    matched[0]++;
+                }
+            }
+            if (status != Status.CLEAN) {
+                return status;
+            }
+        }
+        return Status.CLEAN;
+    }
+
+    /**
+     * Compares a single entry of the index to the file in the work tree.
+     */
+    private static Status compareToFile(Path workTree, GitIndex.Entry entry, Instant indexModified) {
+        if (entry.skipWorktree() || entry.assumeValid()) {
+            return Status.CLEAN;
+        }
+        if ((entry.mode() & TYPE_MASK) == GITLINK) {
+            // whether a submodule is dirty depends on its own repository
+            return Status.UNKNOWN;
+        }
+
+        Path file = workTree.resolve(entry.path());
+        Stat stat;
+        try {
+            stat = Stat.of(file);
+        } catch (NoSuchFileException | NotDirectoryException e) {
+            return Status.DIRTY;
+        } catch (IOException e) {
+            return Status.UNKNOWN;
+        }
+
+        if (stat.type() != (entry.mode() & TYPE_MASK)) {
+            // e.g. a symlink checked out as a plain file with core.symlinks=false
+            return Status.UNKNOWN;
+        }
+        if (UNIX_ATTRIBUTES && stat.type() == REGULAR_FILE && stat.executable() != ((entry.mode() & EXECUTABLE) != 0)) {
+            // only a change if core.fileMode is on, elsewhere git doesn't trust the platform's executable bit either
+            return Status.UNKNOWN;
+        }
+        if (stat.matches(entry) && !racy(entry, indexModified)) {
+            return Status.CLEAN;
+        }
+
+        try {
+            return blobId(file, stat).equals(entry.id()) ? Status.CLEAN : Status.UNKNOWN;
+        } catch (IOException e) {
+            return Status.UNKNOWN;
+        }
+    }
+
+    /**
+     * A file modified no earlier than the index was written may have changed again within the timestamp granularity
+     * after git recorded its stat data, so only its content can tell.
+     */
+    private static boolean racy(GitIndex.Entry entry, Instant indexModified) {
+        return entry.mtimeSeconds() > indexModified.getEpochSecond()
+                || (entry.mtimeSeconds() == indexModified.getEpochSecond() && entry.mtimeNanos() >= indexModified.getNano());
+    }
+
+    private static Status worst(Status a, Status b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    /**
+     * Returns the id git would give the content of the given file (or the target of the given symlink) as a blob.
+     */
+    private static String blobId(Path file, Stat stat) throws IOException {
+        MessageDigest digest = sha1();
+        if (stat.type() == SYMLINK) {
+            byte[] target = Files.readSymbolicLink(file).toString().getBytes(StandardCharsets.UTF_8);
+            digest.update(String.format("blob %d\0", target.length).getBytes(StandardCharsets.US_ASCII));
+            digest.update(target);
+        } else {
+            digest.update(String.format("blob %d\0", Files.size(file)).getBytes(StandardCharsets.US_ASCII));
+            try (InputStream in = Files.newInputStream(file)) {
+                byte[] buffer = new byte[64 * 1024];
+                for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every Java platform is required to support SHA-1.", e);
+        }
+    }
+
+    /**
+     * The {@code lstat} data of a file in the work tree, inode and ctime are -1 where the platform doesn't expose them
+     * and the executable bit is only known with {@link #UNIX_ATTRIBUTES}.
+     */
+    private record Stat(int type, boolean executable, long size, FileTime mtime, FileTime ctime, long inode) {
+
+        static Stat of(Path file) throws IOException {
+            if (UNIX_ATTRIBUTES) {
+                Map<String, Object> attributes = Files.readAttributes(file, "unix:mode,ino,size,lastModifiedTime,ctime",
+                        LinkOption.NOFOLLOW_LINKS);
+                int mode = (Integer) attributes.get("mode");
+                return new Stat(mode & TYPE_MASK, (mode & EXECUTABLE) != 0, (Long) attributes.get("size"),
+                        (FileTime) attributes.get("lastModifiedTime"), (FileTime) attributes.get("ctime"),
+                        (Long) attributes.get("ino"));
+            }
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            int type = attributes.isSymbolicLink() ? SYMLINK : attributes.isRegularFile() ? REGULAR_FILE : TREE;
+            return new Stat(type, false, attributes.size(), attributes.lastModifiedTime(), null, -1);
+        }
+
+        /**
+         * Returns true if the stat data git recorded in the entry still describes the file.
+         */
+        boolean matches(GitIndex.Entry entry) {
+            Instant modified = mtime.toInstant();
+            boolean matches = (size & 0xffffffffL) == entry.size()
+                    && modified.getEpochSecond() == entry.mtimeSeconds()
+                    && modified.getNano() == entry.mtimeNanos();
+            if (ctime != null) {
+                Instant changed = ctime.toInstant();
+                matches &= changed.getEpochSecond() == entry.ctimeSeconds() && changed.getNano() == entry.ctimeNanos();
+            }
+            if (inode >= 0) {
+                matches &= (inode & 0xffffffffL) == entry.inode();
+            }
+            return matches;
+        }
+    }
+}
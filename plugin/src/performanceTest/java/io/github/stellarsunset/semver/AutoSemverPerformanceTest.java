@@ -0,0 +1,192 @@
+package io.github.stellarsunset.semver;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Configures generated multi-project builds over generated histories with warm daemons, failing when configuring them
+ * takes longer or forks more git processes than budgeted.
+ *
+ * <p>Each build is configured once to warm the daemon (and the plugin's caches), then measured after a new commit, the
+ * most common reason to reconfigure a build. With the configuration cache on, a third unchanged build must reuse the
+ * cache entry. Results are appended to the CSV file named by the {@code autoSemver.performance.results} system property.
+ */
+class AutoSemverPerformanceTest {
+
+    private static final Pattern PROCESSES = Pattern.compile("\"processes\": (\\d+)");
+
+    /**
+     * Shared by every build so the daemons stay warm from one case to the next.
+     */
+    @TempDir
+    static File testKitDir;
+
+    /**
+     * Agreed upper bounds for a build, wall-clock times include the test kit's own overhead.
+     *
+     * @param configuration time to configure the build after a new commit
+     * @param reused        time to run the build again from the configuration cache
+     * @param processes     git processes forked while configuring, everything should be read in-process
+     */
+    record Budget(Duration configuration, Duration reused, long processes) {
+
+        static Budget of(int projects) {
+            return switch (projects) {
+                case 10 -> new Budget(Duration.ofSeconds(3), Duration.ofSeconds(1), 0);
+                case 100 -> new Budget(Duration.ofSeconds(6), Duration.ofSeconds(2), 0);
+                case 1000 -> new Budget(Duration.ofSeconds(30), Duration.ofSeconds(5), 0);
+                default -> throw new IllegalArgumentException("No budget for " + projects + " projects");
+            };
+        }
+    }
+
+    @ParameterizedTest(name = "{0} projects, {1} commits, configuration cache: {2}")
+    @CsvSource({
+            "10, 100, false",
+            "10, 100, true",
+            "100, 1000, false",
+            "100, 1000, true",
+            "1000, 10000, false",
+            "1000, 10000, true"
+    })
+    void testConfigurationTime(int projects, int commits, boolean configurationCache, @TempDir File projectDir)
+            throws Exception {
+        Budget budget = Budget.of(projects);
+        String cache = configurationCache ? "--configuration-cache" : "--no-configuration-cache";
+
+        try (Git git = initializeRepository(projectDir, projects, commits)) {
+            runGradle(projectDir, "help", cache, "-PautoSemver.report=true");
+
+            commit(git, "New Commit");
+            long start = System.nanoTime();
+            runGradle(projectDir, "help", cache, "-PautoSemver.report=true");
+            Duration configuration = Duration.ofNanos(System.nanoTime() - start);
+            long processes = processes(projectDir);
+
+            Duration reused = configurationCache ? reuse(projectDir) : Duration.ZERO;
+
+            record(projects, commits, configurationCache, configuration, reused, processes);
+            assertAll(
+                    () -> assertTrue(configuration.compareTo(budget.configuration()) <= 0,
+                            String.format("Configuration took %s, budget %s", configuration, budget.configuration())),
+                    () -> assertTrue(reused.compareTo(budget.reused()) <= 0,
+                            String.format("Reusing the configuration took %s, budget %s", reused, budget.reused())),
+                    () -> assertTrue(processes <= budget.processes(),
+                            String.format("Forked %d git processes, budget %d", processes, budget.processes()))
+            );
+        }
+    }
+
+    /**
+     * Runs the unchanged build again, returning how long it took to load it from the configuration cache.
+     */
+    private Duration reuse(File projectDir) {
+        long start = System.nanoTime();
+        BuildResult result = runGradle(projectDir, "help", "--configuration-cache", "-PautoSemver.report=true");
+        Duration reused = Duration.ofNanos(System.nanoTime() - start);
+        assertTrue(result.getOutput().contains("Reusing configuration cache."), "Reused");
+        return reused;
+    }
+
+    private BuildResult runGradle(File projectDir, String... arguments) {
+        return GradleRunner.create()
+                .withPluginClasspath()
+                .withTestKitDir(testKitDir)
+                .withArguments(arguments)
+                .withProjectDir(projectDir)
+                .build();
+    }
+
+    /**
+     * Returns the git processes counted in the {@code autoSemver.report} of the last build.
+     */
+    private static long processes(File projectDir) throws IOException {
+        String report = Files.readString(new File(projectDir, "build/autoSemver/report.json").toPath());
+        Matcher matcher = PROCESSES.matcher(report);
+        assertTrue(matcher.find(), "Report has no process count: " + report);
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static void record(int projects, int commits, boolean configurationCache, Duration configuration,
+                               Duration reused, long processes) throws IOException {
+        String results = System.getProperty("autoSemver.performance.results");
+        if (results == null) {
+            return;
+        }
+        Path file = Path.of(results);
+        Files.createDirectories(file.getParent());
+        if (!Files.exists(file)) {
+            Files.writeString(file, "projects,commits,configurationCache,configurationMillis,reusedMillis,processes\n");
+        }
+        Files.writeString(file, String.format(Locale.ROOT, "%d,%d,%b,%d,%d,%d%n", projects, commits,
+                configurationCache, configuration.toMillis(), reused.toMillis(), processes), StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Initializes a build of the given number of subprojects, each applying the plugin, in a repository whose only
+     * release tag is on the first of the given number of commits, so the first build walks the whole history.
+     */
+    private static Git initializeRepository(File projectDir, int projects, int commits) throws Exception {
+        Git git = Git.init()
+                .setDirectory(projectDir)
+                .setInitialBranch("main")
+                .call();
+
+        StoredConfig config = git.getRepository().getConfig();
+        config.setBoolean("commit", null, "gpgsign", false);
+        config.setBoolean("tag", null, "gpgsign", false);
+        config.unset("gpg", null, "format");
+        config.save();
+
+        String plugin = """
+                plugins {
+                  id('io.github.stellarsunset.auto-semver')
+                }
+                """;
+        Files.writeString(projectDir.toPath().resolve("settings.gradle"), IntStream.range(0, projects)
+                .mapToObj(i -> String.format("include('p%d')", i))
+                .collect(Collectors.joining("\n", "", "\n")));
+        Files.writeString(projectDir.toPath().resolve("build.gradle"), plugin);
+        Files.writeString(projectDir.toPath().resolve(".gitignore"), ".gradle/\nbuild/\n");
+        for (int i = 0; i < projects; i++) {
+            Path dir = Files.createDirectories(projectDir.toPath().resolve("p" + i));
+            Files.writeString(dir.resolve("build.gradle"), plugin);
+        }
+
+        git.add().addFilepattern(".").call();
+        commit(git, "Initial Commit");
+        git.tag().setName("v1.0.0").setAnnotated(true).setMessage("v1.0.0").call();
+        for (int i = 1; i < commits; i++) {
+            commit(git, "Commit " + i);
+        }
+        return git;
+    }
+
+    private static void commit(Git git, String message) throws Exception {
+        git.commit()
+                .setAuthor("junit", "junit@autosemver.github.com")
+                .setMessage(message)
+                .call();
+    }
+}
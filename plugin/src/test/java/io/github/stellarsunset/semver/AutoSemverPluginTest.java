@@ -10,8 +10,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 class AutoSemverPluginTest {
     @Test
@@ -26,4 +28,56 @@ class AutoSemverPluginTest {
             assertNotNull(project.getTasks().findByName("release"));
         }
     }
+
+    @Test
+    void pluginSharesVersionAcrossProjects(@TempDir File projectDir) {
+
+        Project root = ProjectBuilder.builder()
+                .withProjectDir(projectDir)
+                .build();
+
+        Project child = ProjectBuilder.builder()
+                .withName("child")
+                .withParent(root)
+                .withProjectDir(new File(projectDir, "child"))
+                .build();
+
+        try (Git git = GitHelpers.initializeRepositorySafely(projectDir)) {
+            root.getPlugins().apply("io.github.stellarsunset.auto-semver");
+            child.getPlugins().apply("io.github.stellarsunset.auto-semver");
+            assertAll(
+                    () -> assertEquals("0.0.1", root.getVersion(), "Root"),
+                    () -> assertEquals("0.0.1", child.getVersion(), "Child")
+            );
+        }
+    }
+
+    @Test
+    void pluginGeneratesVersionClass(@TempDir File projectDir) throws IOException {
+
+        Project project = ProjectBuilder.builder()
+                .withProjectDir(projectDir)
+                .build();
+
+        try (Git git = GitHelpers.initializeRepositorySafely(projectDir)) {
+            project.getPlugins().apply("io.github.stellarsunset.auto-semver");
+
+            GenerateVersionTask task = (GenerateVersionTask) project.getTasks().getByName("generateVersion");
+            task.getClassName().set("com.example.BuildVersion");
+            task.generate();
+
+            File generated = new File(project.getLayout().getBuildDirectory().get().getAsFile(), "generated");
+            String source = Files.readString(
+                    new File(generated, "sources/autoSemver/java/com/example/BuildVersion.java").toPath());
+            String properties = Files.readString(
+                    new File(generated, "resources/autoSemver/com/example/version.properties").toPath());
+            assertAll(
+                    () -> assertTrue(source.startsWith("package com.example;"), "Package"),
+                    () -> assertTrue(source.contains("public static final String VERSION = \"0.0.1\";"), "Version"),
+                    () -> assertTrue(source.contains("public static final int PATCH = 1;"), "Patch"),
+                    () -> assertTrue(source.contains("public static final String COMMIT = \"\";"), "Commit"),
+                    () -> assertTrue(properties.contains("version=0.0.1\n"), "Properties")
+            );
+        }
+    }
 }
@@ -0,0 +1,121 @@
+package io.github.stellarsunset.semver;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatFileTest {
+
+    private static final String MISSING = "0123456789012345678901234567890123456789";
+
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+
+    @Test
+    void testReadMatchesObjectFiles(@TempDir File projectDir) throws Exception {
+        try (Git git = GitHelpers.initializeRepositorySafely(projectDir)) {
+            String head = git.getRepository().resolve("HEAD").name();
+            File gitDir = gitDir(projectDir);
+
+            try (FileObjectDatabase files = FileObjectDatabase.open(new File(gitDir, "objects"));
+                 CatFile catFile = CatFile.of(gitDir, TIMEOUT)) {
+                assertEquals(files.commit(head), catFile.commit(head));
+            }
+        }
+    }
+
+    @Test
+    void testReadAllLargeBatch(@TempDir File projectDir) throws Exception {
+        try (Git git = GitHelpers.initializeRepositorySafely(projectDir)) {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                RevCommit commit = git.commit().setAllowEmpty(true).setSign(false).setMessage("Commit " + i).call();
+                ids.add(commit.name());
+            }
+
+            try (CatFile catFile = CatFile.of(gitDir(projectDir), TIMEOUT)) {
+                List<ObjectDatabase.RawObject> objects = catFile.readAll(ids);
+                assertAll(
+                        () -> assertEquals(ids.size(), objects.size(), "Objects"),
+                        () -> assertTrue(objects.stream().allMatch(o -> o.type() == ObjectDatabase.Type.COMMIT), "Types")
+                );
+            }
+        }
+    }
+
+    @Test
+    void testMissingObject(@TempDir File projectDir) throws Exception {
+        try (Git git = GitHelpers.initializeRepositorySafely(projectDir);
+             CatFile catFile = CatFile.of(gitDir(projectDir), TIMEOUT)) {
+            String head = git.getRepository().resolve("HEAD").name();
+
+            assertAll(
+                    () -> assertThrows(ObjectDatabase.MissingObjectException.class, () -> catFile.read(MISSING)),
+                    () -> assertThrows(ObjectDatabase.MissingObjectException.class, () -> catFile.readAll(List.of(head, MISSING))),
+                    () -> assertEquals(ObjectDatabase.Type.COMMIT, catFile.read(head).type(), "Still usable after a miss")
+            );
+        }
+    }
+
+    @Test
+    void testRestartsAfterClose(@TempDir File projectDir) throws Exception {
+        try (Git git = GitHelpers.initializeRepositorySafely(projectDir);
+             CatFile catFile = CatFile.of(gitDir(projectDir), TIMEOUT)) {
+            ObjectId head = git.getRepository().resolve("HEAD");
+
+            catFile.read(head.name());
+            catFile.close();
+            assertEquals(ObjectDatabase.Type.COMMIT, catFile.read(head.name()).type());
+        }
+    }
+
+    @Test
+    void testPoolSharesProcesses(@TempDir File projectDir) throws Exception {
+        try (Git git = GitHelpers.initializeRepositorySafely(projectDir)) {
+            File gitDir = gitDir(projectDir);
+            String head = git.getRepository().resolve("HEAD").name();
+
+            try (CatFile.Pool pool = new CatFile.Pool(TIMEOUT)) {
+                CatFile catFile = pool.of(gitDir);
+                catFile.read(head);
+                assertSame(catFile, pool.of(gitDir), "Shared");
+
+                pool.close();
+                assertEquals(ObjectDatabase.Type.COMMIT, pool.of(gitDir).read(head).type(), "Usable after close");
+            }
+        }
+    }
+
+    @Test
+    void testTimeout(@TempDir File projectDir) throws Exception {
+        try (Git _ = GitHelpers.initializeRepositorySafely(projectDir)) {
+            // a partial clone lazily fetches missing objects from its promisor remote, which here never answers
+            GitDirTest.run(projectDir, "git", "config", "core.repositoryformatversion", "1");
+            GitDirTest.run(projectDir, "git", "config", "extensions.partialClone", "origin");
+            GitDirTest.run(projectDir, "git", "config", "remote.origin.promisor", "true");
+            GitDirTest.run(projectDir, "git", "config", "remote.origin.url", projectDir.getAbsolutePath());
+            GitDirTest.run(projectDir, "git", "config", "remote.origin.uploadpack", "sleep 30; git-upload-pack");
+
+            try (CatFile catFile = CatFile.of(gitDir(projectDir), Duration.ofSeconds(1))) {
+                long start = System.nanoTime();
+                CatFile.TimedOutException e = assertThrows(CatFile.TimedOutException.class, () -> catFile.read(MISSING));
+                assertAll(
+                        () -> assertTrue(Duration.ofNanos(System.nanoTime() - start).toSeconds() < 10, "Stopped early"),
+                        () -> assertTrue(e.commandLine().endsWith("cat-file --batch"), e.commandLine())
+                );
+            }
+        }
+    }
+
+    private static File gitDir(File projectDir) {
+        return GitDir.find(projectDir).orElseThrow().dir();
+    }
+}
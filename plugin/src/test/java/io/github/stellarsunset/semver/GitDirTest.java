@@ -0,0 +1,107 @@
+package io.github.stellarsunset.semver;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitDirTest {
+
+    @Test
+    void testWorkTree(@TempDir File dir) throws Exception {
+        File main = new File(dir, "main");
+        try (Git _ = initialize(main)) {
+            File sub = new File(main, "sub");
+            assertTrue(sub.mkdirs());
+
+            GitDir gitDir = GitDir.find(sub).orElseThrow();
+            assertAll(
+                    () -> assertEquals(canonical(main, ".git"), gitDir.dir(), "Dir"),
+                    () -> assertEquals(gitDir.dir(), gitDir.commonDir(), "Common dir"),
+                    () -> assertEquals(main.getCanonicalFile(), gitDir.workTree(), "Work tree"),
+                    () -> assertEquals(gitDir, GitDir.of(gitDir.dir()), "Of")
+            );
+        }
+    }
+
+    @Test
+    void testLinkedWorktree(@TempDir File dir) throws Exception {
+        File main = new File(dir, "main");
+        File linked = new File(dir, "linked");
+        try (Git git = initialize(main)) {
+            run(main, "git", "worktree", "add", "--quiet", "-b", "other", linked.getAbsolutePath());
+            git.commit().setAllowEmpty(true).setSign(false).setMessage("Main only").call();
+
+            GitDir gitDir = GitDir.find(linked).orElseThrow();
+            assertAll(
+                    () -> assertEquals(canonical(main, ".git/worktrees/linked"), gitDir.dir(), "Dir"),
+                    () -> assertEquals(canonical(main, ".git"), gitDir.commonDir(), "Common dir"),
+                    () -> assertEquals(linked.getCanonicalFile(), gitDir.workTree(), "Work tree"),
+                    () -> assertEquals(gitDir, GitDir.of(gitDir.dir()), "Of")
+            );
+
+            try (GitReader reader = GitReader.open(gitDir.dir())) {
+                var result = assertInstanceOf(Describe.Result.Described.class, reader.describe().orElseThrow());
+                assertAll(
+                        () -> assertEquals("v1.0.0", result.text(), "Own HEAD, shared tags"),
+                        () -> assertEquals(WorkTree.Status.CLEAN, reader.status(), "Clean")
+                );
+
+                Files.delete(new File(linked, "settings.gradle").toPath());
+                assertEquals(WorkTree.Status.DIRTY, reader.status(), "Dirty");
+            }
+        }
+    }
+
+    @Test
+    void testSubmodule(@TempDir File dir) throws Exception {
+        File library = new File(dir, "library");
+        File main = new File(dir, "main");
+        try (Git _ = initialize(library); Git _ = initialize(main)) {
+            run(main, "git", "-c", "protocol.file.allow=always", "submodule", "--quiet", "add",
+                    "file://" + library.getAbsolutePath(), "library");
+
+            File submodule = new File(main, "library");
+            GitDir gitDir = GitDir.find(submodule).orElseThrow();
+            assertAll(
+                    () -> assertEquals(canonical(main, ".git/modules/library"), gitDir.dir(), "Dir"),
+                    () -> assertEquals(gitDir.dir(), gitDir.commonDir(), "Common dir"),
+                    () -> assertEquals(submodule.getCanonicalFile(), gitDir.workTree(), "Work tree"),
+                    () -> assertEquals(gitDir, GitDir.of(gitDir.dir()), "Of")
+            );
+
+            try (GitReader reader = GitReader.open(gitDir.dir())) {
+                assertAll(
+                        () -> assertEquals("v1.0.0", ((Describe.Result.Described) reader.describe().orElseThrow()).text(), "Tag"),
+                        () -> assertEquals(WorkTree.Status.CLEAN, reader.status(), "Clean")
+                );
+            }
+        }
+    }
+
+    /**
+     * Initializes a repository in the given directory with a single commit tagged v1.0.0.
+     */
+    static Git initialize(File dir) throws Exception {
+        assertTrue(dir.mkdirs());
+        Git git = Git.init().setDirectory(dir).setInitialBranch("main").call();
+        GitHelpers.initializeProject(dir);
+        git.add().addFilepattern(".").call();
+        git.commit().setSign(false).setMessage("Initial Commit").call();
+        git.tag().setName("v1.0.0").setAnnotated(true).setSigned(false).setMessage("v1.0.0").call();
+        return git;
+    }
+
+    static void run(File dir, String... command) throws Exception {
+        Process process = new ProcessBuilder(command).directory(dir).inheritIO().start();
+        assertEquals(0, process.waitFor(), String.join(" ", command));
+    }
+
+    private static File canonical(File dir, String path) throws Exception {
+        return new File(dir, path).getCanonicalFile();
+    }
+}
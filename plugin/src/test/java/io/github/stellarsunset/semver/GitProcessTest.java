@@ -0,0 +1,133 @@
+package io.github.stellarsunset.semver;
+
+import org.gradle.api.Project;
+import org.gradle.process.ExecOperations;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitProcessTest {
+
+    @Test
+    void testStreamsLines(@TempDir File projectDir) {
+        List<String> lines = new ArrayList<>();
+        GitProcess.Result result = GitProcess.run(exec(projectDir), projectDir, Duration.ofSeconds(30),
+                List.of("git", "-c", "alias.lines=!printf 'a\\nb\\r\\nc'", "lines"), lines::add);
+        assertAll(
+                () -> assertInstanceOf(GitProcess.Result.Success.class, result, "Result"),
+                () -> assertEquals(List.of("a", "b", "c"), lines, "Lines")
+        );
+    }
+
+    @Test
+    void testFailure(@TempDir File projectDir) {
+        GitProcess.Result result = GitProcess.run(exec(projectDir), projectDir, Duration.ofSeconds(30),
+                List.of("git", "describe"), _ -> {});
+        var failure = assertInstanceOf(GitProcess.Result.Failure.class, result);
+        assertAll(
+                () -> assertEquals(128, failure.exitValue(), "Exit value"),
+                () -> assertTrue(failure.stderr().startsWith("fatal:"), failure.stderr())
+        );
+    }
+
+    @Test
+    void testTimeout(@TempDir File projectDir) {
+        long start = System.nanoTime();
+        GitProcess.Result result = GitProcess.run(exec(projectDir), projectDir, Duration.ofSeconds(1),
+                List.of("git", "-c", "alias.hang=!sleep 30", "hang"), _ -> {});
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        assertAll(
+                () -> assertInstanceOf(GitProcess.Result.TimedOut.class, result, "Result"),
+                () -> assertTrue(elapsed.compareTo(Duration.ofSeconds(10)) < 0, "Elapsed: " + elapsed),
+                () -> assertTrue(ProcessHandle.current().descendants()
+                        .noneMatch(process -> process.info().commandLine().orElse("").contains("sleep 30")), "Stopped")
+        );
+    }
+
+    @Test
+    void testTimeoutWithoutTrace(@TempDir File projectDir) {
+        // no trace2 event ever comes from anything but git, so the process has to be found by its command line
+        long start = System.nanoTime();
+        GitProcess.Result result = GitProcess.run(exec(projectDir), projectDir, Duration.ofSeconds(1),
+                List.of("sleep", "31"), _ -> {});
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        assertAll(
+                () -> assertInstanceOf(GitProcess.Result.TimedOut.class, result, "Result"),
+                () -> assertTrue(elapsed.compareTo(Duration.ofSeconds(10)) < 0, "Elapsed: " + elapsed),
+                () -> assertTrue(ProcessHandle.current().descendants()
+                        .noneMatch(process -> process.info().commandLine().orElse("").contains("sleep 31")), "Stopped")
+        );
+    }
+
+    @Test
+    void testFind() throws Exception {
+        Instant launched = Instant.now();
+        Process process = new ProcessBuilder("sleep", "32").start();
+        try {
+            assertAll(
+                    () -> assertEquals(Optional.of(process.pid()),
+                            GitProcess.find(List.of("sleep", "32"), launched).map(ProcessHandle::pid), "Found"),
+                    () -> assertEquals(Optional.empty(),
+                            GitProcess.find(List.of("sleep", "33"), launched), "Other arguments"),
+                    () -> assertEquals(Optional.empty(),
+                            GitProcess.find(List.of("sleep", "32"), launched.plusSeconds(60)), "Launched later")
+            );
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    @Test
+    void testPid() {
+        assertAll(
+                () -> assertEquals(Optional.of(0x621aL), GitProcess.pid(
+                        "{\"event\":\"version\",\"sid\":\"20261017T030822.053647Z-H0a7c9cdf-P0000621a\",\"thread\":\"main\"}"),
+                        "Top-level"),
+                () -> assertEquals(Optional.empty(), GitProcess.pid(
+                        "{\"event\":\"version\",\"sid\":\"20261017T030822.053647Z-H0a7c9cdf-P0000621a/20261017T030822.061236Z-H0a7c9cdf-P0000621c\"}"),
+                        "Nested")
+        );
+    }
+
+    @Test
+    void testBoundedOutput() throws IOException {
+        List<String> lines = new ArrayList<>();
+        GitProcess.Lines out = new GitProcess.Lines(lines::add);
+        out.write("x".repeat(GitProcess.MAX_LINE + 10).getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+        out.write('y');
+        out.finish();
+
+        GitProcess.Tail err = new GitProcess.Tail(8);
+        err.write("fatal: 0123456789".getBytes(StandardCharsets.UTF_8));
+        assertAll(
+                () -> assertEquals(2, lines.size(), "Lines"),
+                () -> assertEquals(GitProcess.MAX_LINE, lines.getFirst().length(), "Truncated"),
+                () -> assertEquals("y", lines.getLast(), "Last"),
+                () -> assertEquals("23456789", err.toString(), "Tail")
+        );
+    }
+
+    private static ExecOperations exec(File projectDir) {
+        Project project = ProjectBuilder.builder().withProjectDir(projectDir).build();
+        return project.getObjects().newInstance(Services.class).getExecOperations();
+    }
+
+    public abstract static class Services {
+
+        @Inject
+        public abstract ExecOperations getExecOperations();
+    }
+}
@@ -0,0 +1,470 @@
+package io.github.stellarsunset.semver;
+
+import io.github.stellarsunset.semver.Git.Scope;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitReaderTest {
+
+    @Test
+    void testNoTags(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            commit(git, "second");
+            assertInstanceOf(Describe.Result.NoNames.class, describe(projectDir).orElseThrow());
+        }
+    }
+
+    @Test
+    void testOnlyLightweightTags(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            git.tag().setName("v1.0.0").setAnnotated(false).call();
+            commit(git, "second");
+            assertInstanceOf(Describe.Result.Undescribable.class, describe(projectDir).orElseThrow());
+        }
+    }
+
+    @Test
+    void testMatchesGitDescribe_Loose(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            history(git);
+            assertEquals(gitDescribe(projectDir), text(projectDir));
+        }
+    }
+
+    @Test
+    void testMatchesGitDescribe_Packed(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            history(git);
+            git.gc().setAggressive(true).call();
+            assertEquals(gitDescribe(projectDir), text(projectDir));
+        }
+    }
+
+    @Test
+    void testIgnoresNonReleaseTags(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            history(git);
+            for (String name : new String[]{"nightly-1", "v2.0.0-rc1", "v3"}) {
+                tag(git, name);
+                commit(git, name);
+            }
+            assertAll(
+                    () -> assertEquals("v0.2.0-9-g" + head(git).substring(0, 7), text(projectDir)),
+                    () -> assertEquals(git(projectDir, "describe", "--match", "v[0-9]*.[0-9]*.[0-9]*",
+                            "--exclude", "v*[!0-9.]*", "--exclude", "v*.*.*.*"), text(projectDir))
+            );
+        }
+    }
+
+    @Test
+    void testOnlyNonReleaseTags(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            tag(git, "deploy-1");
+            commit(git, "second");
+            assertInstanceOf(Describe.Result.NoNames.class, describe(projectDir).orElseThrow());
+        }
+    }
+
+    @Test
+    void testMatchesGitDescribe_ExactMatch(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            history(git);
+            tag(git, "v2.0.0");
+            assertAll(
+                    () -> assertEquals("v2.0.0", text(projectDir)),
+                    () -> assertEquals(gitDescribe(projectDir), text(projectDir))
+            );
+        }
+    }
+
+    @Test
+    void testMatchesGitDescribe_CommitGraph(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            history(git);
+            git(projectDir, "commit-graph", "write", "--reachable");
+            assertAll(
+                    () -> assertTrue(new File(projectDir, ".git/objects/info/commit-graph").isFile(), "Graph written"),
+                    () -> assertEquals(gitDescribe(projectDir), text(projectDir))
+            );
+        }
+    }
+
+    @Test
+    void testMatchesGitDescribe_SplitCommitGraph(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            history(git);
+            git(projectDir, "commit-graph", "write", "--reachable", "--split");
+
+            git.checkout().setCreateBranch(true).setName("topic").call();
+            commit(git, "topic 1");
+            git.checkout().setName("main").call();
+            commit(git, "main 6");
+            git.merge().include(git.getRepository().resolve("topic")).setMessage("Merge topic").call();
+            git(projectDir, "commit-graph", "write", "--reachable", "--split=no-merge");
+
+            // a commit missing from the graph entirely, which has to be read from the object files
+            commit(git, "main 7");
+
+            File chain = new File(projectDir, ".git/objects/info/commit-graphs/commit-graph-chain");
+            assertAll(
+                    () -> assertEquals(2, Files.readAllLines(chain.toPath()).size(), "Graph layers"),
+                    () -> assertEquals(gitDescribe(projectDir), text(projectDir))
+            );
+        }
+    }
+
+    @Test
+    void testMatchesGitDescribe_Alternates(@TempDir File originDir, @TempDir File projectDir) throws Exception {
+        try (Git origin = initialize(originDir)) {
+            history(origin);
+        }
+        // a shared clone borrows every existing object from the origin through objects/info/alternates
+        git(projectDir.getParentFile(), "clone", "--quiet", "--shared", originDir.getAbsolutePath(), projectDir.getAbsolutePath());
+        try (Git git = Git.open(projectDir)) {
+            commit(git, "local 1");
+            assertAll(
+                    () -> assertTrue(new File(projectDir, ".git/objects/info/alternates").isFile(), "Alternates"),
+                    () -> assertEquals(gitDescribe(projectDir), text(projectDir))
+            );
+        }
+    }
+
+    @Test
+    void testCommitGraphMatchesObjects(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            history(git);
+            git(projectDir, "commit-graph", "write", "--reachable");
+
+            File objectsDir = new File(projectDir, ".git/objects");
+            try (FileObjectDatabase files = FileObjectDatabase.open(objectsDir)) {
+                ObjectDatabase graph = CommitGraph.open(objectsDir, files);
+                assertInstanceOf(CommitGraph.class, graph);
+
+                for (RevCommit commit : git.log().all().call()) {
+                    ObjectDatabase.Commit expected = files.commit(commit.name());
+                    ObjectDatabase.Commit actual = graph.commit(commit.name());
+                    assertAll(
+                            () -> assertEquals(expected.parents(), actual.parents(), "Parents"),
+                            () -> assertEquals(expected.tree(), actual.tree(), "Tree"),
+                            () -> assertEquals(expected.time(), actual.time(), "Time"),
+                            () -> assertTrue(actual.generation() < ObjectDatabase.Commit.GENERATION_INFINITY, "Generation")
+                    );
+                    for (String parent : actual.parents()) {
+                        assertTrue(graph.commit(parent).generation() < actual.generation(), "Parent generation");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testDescribeSinceMatchesFullDescribe(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            history(git);
+            Describe.Result.Described anchor = described(projectDir);
+
+            commit(git, "main 6");
+            commit(git, "main 7");
+
+            assertAll(
+                    () -> assertEquals(Optional.of(describe(projectDir).orElseThrow()), describeSince(projectDir, anchor)),
+                    () -> assertEquals(gitDescribe(projectDir), text(projectDir))
+            );
+        }
+    }
+
+    @Test
+    void testDescribeSinceMerge(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            history(git);
+            Describe.Result.Described anchor = described(projectDir);
+
+            git.checkout().setCreateBranch(true).setName("topic").call();
+            commit(git, "topic 1");
+            git.checkout().setName("main").call();
+            commit(git, "main 6");
+            git.merge().include(git.getRepository().resolve("topic")).setMessage("Merge topic").call();
+
+            assertEquals(Optional.empty(), describeSince(projectDir, anchor), "Merges need a full walk");
+        }
+    }
+
+    @Test
+    void testDescribeSinceUnchangedHead(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            history(git);
+            Describe.Result.Described anchor = described(projectDir);
+            assertEquals(Optional.of(anchor), describeSince(projectDir, anchor));
+        }
+    }
+
+    @Test
+    void testDescribeSinceTaggedNewCommit(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            history(git);
+            Describe.Result.Described anchor = described(projectDir);
+
+            git.checkout().setCreateBranch(true).setName("topic").call();
+            commit(git, "topic 1");
+            tag(git, "v3.0.0");
+            git.checkout().setName("main").call();
+            git.merge().include(git.getRepository().resolve("topic")).setMessage("Merge topic").call();
+
+            assertEquals(Optional.empty(), describeSince(projectDir, anchor), "New commits are tagged");
+        }
+    }
+
+    @Test
+    void testDescribeSinceRewrittenHistory(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            history(git);
+            Describe.Result.Described anchor = described(projectDir);
+
+            git.reset().setMode(ResetCommand.ResetType.HARD).setRef("HEAD~2").call();
+            commit(git, "rewritten");
+
+            assertEquals(Optional.empty(), describeSince(projectDir, anchor), "Anchor is no longer an ancestor");
+        }
+    }
+
+    @Test
+    void testDescribeAllMatchesGitDescribe(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            history(git);
+
+            List<String> commits = git(projectDir, "rev-list", "--topo-order", "--reverse", "HEAD").lines().toList();
+            Map<String, Describe.Result> results;
+            try (GitReader reader = GitReader.open(GitDir.find(projectDir).orElseThrow().dir())) {
+                results = reader.describeAll(commits);
+            }
+
+            assertEquals(commits, List.copyOf(results.keySet()), "Order");
+            for (String commit : commits) {
+                assertEquals(git(projectDir, "describe", commit),
+                        ((Describe.Result.Described) results.get(commit)).text(), commit);
+            }
+        }
+    }
+
+    @Test
+    void testScopedMatchesGitCli(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            change(git, projectDir, "core/A.java", "core 1");
+            change(git, projectDir, "api/B.java", "api 1");
+            tag(git, "v1.0.0");
+            tag(git, "core/v1.0.0");
+            tag(git, "api/v0.1.0");
+
+            git.checkout().setCreateBranch(true).setName("feature").call();
+            change(git, projectDir, "core/A.java", "core 2");
+            change(git, projectDir, "README.md", "docs 1");
+
+            git.checkout().setName("main").call();
+            change(git, projectDir, "api/B.java", "api 2");
+            tag(git, "api/v0.2.0");
+            change(git, projectDir, "core/nested/C.java", "core 3");
+            git.merge().include(git.getRepository().resolve("feature")).setMessage("Merge feature").call();
+            commit(git, "empty");
+
+            List<Scope> scopes = List.of(Scope.ROOT, Scope.of("core"), Scope.of("api"));
+            Map<Scope, Describe.Result> results = describe(projectDir, scopes);
+
+            assertEquals(git(projectDir, "describe", "--match", "v*"), ((Describe.Result.Described) results.get(Scope.ROOT)).text(), "Root");
+            for (Scope scope : scopes.subList(1, scopes.size())) {
+                String tag = git(projectDir, "describe", "--abbrev=0", "--match", scope.tagPrefix() + "v*");
+                int distance = Integer.parseInt(git(projectDir, "rev-list", "--count", tag + "..HEAD", "--", scope.path()));
+                assertEquals(new Describe.Result.Described(tag, distance, head(git)), results.get(scope), scope.toString());
+            }
+        }
+    }
+
+    @Test
+    void testScopedWithoutTags(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            change(git, projectDir, "core/A.java", "core 1");
+            git.tag().setName("core/v1.0.0").setAnnotated(false).call();
+            change(git, projectDir, "core/A.java", "core 2");
+
+            Map<Scope, Describe.Result> results = describe(projectDir, List.of(Scope.of("core"), Scope.of("api")));
+            assertAll(
+                    () -> assertInstanceOf(Describe.Result.Undescribable.class, results.get(Scope.of("core")), "Lightweight only"),
+                    () -> assertEquals(new Describe.Result.NoNames(), results.get(Scope.of("api")), "No tags")
+            );
+        }
+    }
+
+    @Test
+    void testStatusClean(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            trackedFiles(git, projectDir);
+            Files.writeString(new File(projectDir, "untracked.txt").toPath(), "untracked");
+            assertEquals(WorkTree.Status.CLEAN, status(projectDir));
+        }
+    }
+
+    @Test
+    void testStatusClean_IndexVersions(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            trackedFiles(git, projectDir);
+            git(projectDir, "update-index", "--index-version", "4");
+            assertEquals(WorkTree.Status.CLEAN, status(projectDir), "Version 4");
+            git(projectDir, "update-index", "--index-version", "2");
+            assertEquals(WorkTree.Status.CLEAN, status(projectDir), "Version 2");
+        }
+    }
+
+    @Test
+    void testStatusClean_TouchedFile(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            trackedFiles(git, projectDir);
+            File file = new File(projectDir, "src/main/a.txt");
+            assertTrue(file.setLastModified(file.lastModified() + 60_000));
+            assertEquals(WorkTree.Status.CLEAN, status(projectDir));
+        }
+    }
+
+    @Test
+    void testStatusDirty(@TempDir File projectDir) throws Exception {
+        try (Git git = initialize(projectDir)) {
+            trackedFiles(git, projectDir);
+
+            Files.writeString(new File(projectDir, "src/main/a.txt").toPath(), "modified");
+            assertNotEquals(WorkTree.Status.CLEAN, status(projectDir), "Modified");
+
+            git(projectDir, "add", "src/main/a.txt");
+            assertEquals(WorkTree.Status.DIRTY, status(projectDir), "Staged");
+
+            git(projectDir, "reset", "--hard");
+            Files.delete(new File(projectDir, "src/test/b.txt").toPath());
+            assertEquals(WorkTree.Status.DIRTY, status(projectDir), "Deleted");
+        }
+    }
+
+    /**
+     * Tags on both sides of a merge, with a lightweight tag closer to HEAD that should be ignored.
+     */
+    private static void history(Git git) throws Exception {
+        tag(git, "v0.1.0");
+        commit(git, "main 1");
+
+        git.checkout().setCreateBranch(true).setName("feature").call();
+        commit(git, "feature 1");
+        tag(git, "v0.2.0");
+        commit(git, "feature 2");
+
+        git.checkout().setName("main").call();
+        commit(git, "main 2");
+        commit(git, "main 3");
+
+        git.merge().include(git.getRepository().resolve("feature")).setMessage("Merge feature").call();
+        commit(git, "main 4");
+        git.tag().setName("v9.9.9").setAnnotated(false).call();
+        commit(git, "main 5");
+    }
+
+    private static Git initialize(File projectDir) throws Exception {
+        Git git = Git.init().setDirectory(projectDir).setInitialBranch("main").call();
+        var config = git.getRepository().getConfig();
+        config.setBoolean("commit", null, "gpgsign", false);
+        config.setBoolean("tag", null, "gpgsign", false);
+        config.save();
+        commit(git, "Initial Commit");
+        return git;
+    }
+
+    private static void commit(Git git, String message) throws Exception {
+        git.commit()
+                .setAuthor("junit", "junit@autosemver.github.com")
+                .setCommitter("junit", "junit@autosemver.github.com")
+                .setAllowEmpty(true)
+                .setMessage(message)
+                .call();
+    }
+
+    private static void change(Git git, File projectDir, String path, String message) throws Exception {
+        File file = new File(projectDir, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.writeString(file.toPath(), message + System.lineSeparator());
+        git.add().addFilepattern(path).call();
+        commit(git, message);
+    }
+
+    private static void trackedFiles(Git git, File projectDir) throws Exception {
+        change(git, projectDir, "src/main/a.txt", "a");
+        change(git, projectDir, "src/test/b.txt", "b");
+        change(git, projectDir, "README.md", "readme");
+        // lets git rewrite the index JGit left behind in its own format, cache-tree included
+        git(projectDir, "status", "--porcelain");
+    }
+
+    private static String head(Git git) throws IOException {
+        return git.getRepository().resolve("HEAD").name();
+    }
+
+    private static void tag(Git git, String name) throws Exception {
+        git.tag().setName(name).setAnnotated(true).setMessage(name).call();
+    }
+
+    private static Optional<Describe.Result> describe(File projectDir) throws IOException {
+        try (GitReader reader = GitReader.open(GitDir.find(projectDir).orElseThrow().dir())) {
+            return reader.describe();
+        }
+    }
+
+    private static Map<Scope, Describe.Result> describe(File projectDir, List<Scope> scopes) throws IOException {
+        try (GitReader reader = GitReader.open(GitDir.find(projectDir).orElseThrow().dir())) {
+            return reader.describe(scopes).orElseThrow();
+        }
+    }
+
+    private static WorkTree.Status status(File projectDir) throws IOException {
+        try (GitReader reader = GitReader.open(GitDir.find(projectDir).orElseThrow().dir())) {
+            return reader.status();
+        }
+    }
+
+    private static Optional<Describe.Result> describeSince(File projectDir, Describe.Result.Described anchor)
+            throws IOException {
+        try (GitReader reader = GitReader.open(GitDir.find(projectDir).orElseThrow().dir())) {
+            return reader.describeSince(anchor);
+        }
+    }
+
+    private static Describe.Result.Described described(File projectDir) throws IOException {
+        return (Describe.Result.Described) describe(projectDir).orElseThrow();
+    }
+
+    private static String text(File projectDir) throws IOException {
+        return described(projectDir).text();
+    }
+
+    private static String gitDescribe(File projectDir) throws IOException, InterruptedException {
+        return git(projectDir, "describe");
+    }
+
+    private static String git(File projectDir, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of("git"));
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command)
+                .directory(projectDir)
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+        assertEquals(0, process.waitFor(), output);
+        return output;
+    }
+}
@@ -0,0 +1,159 @@
+package io.github.stellarsunset.semver;
+
+import org.eclipse.jgit.lib.StoredConfig;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.problems.Problems;
+import org.gradle.process.ExecOperations;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("UnstableApiUsage")
+class GitTest {
+
+    @Test
+    void testDeepenUntilTagged(@TempDir File dir) throws Exception {
+        File origin = new File(dir, "origin");
+        initializeOrigin(origin, 200, 40);
+
+        File clone = new File(dir, "clone");
+        run(dir, "git", "clone", "--quiet", "--depth", "1", "file://" + origin.getAbsolutePath(), clone.getName());
+        assertTrue(new File(clone, ".git/shallow").isFile(), "Shallow");
+
+        Git git = git(clone);
+        git.deepen("origin", List.of(Git.Scope.ROOT));
+
+        Version version = git.version();
+        assertAll(
+                () -> assertTrue(new File(clone, ".git/shallow").isFile(), "Still shallow"),
+                () -> assertEquals(Version.release(1, 0, 0), Version.releasePart(version), "Release"),
+                () -> assertEquals(40, assertInstanceOf(Version.PreRelease.class, version).distance(), "Distance")
+        );
+    }
+
+    @Test
+    void testDeepenUntilComplete(@TempDir File dir) throws Exception {
+        File origin = new File(dir, "origin");
+        initializeOrigin(origin, 0, 0);
+        try (org.eclipse.jgit.api.Git repository = org.eclipse.jgit.api.Git.open(origin)) {
+            repository.tagDelete().setTags("v1.0.0").call();
+        }
+
+        File clone = new File(dir, "clone");
+        run(dir, "git", "clone", "--quiet", "--depth", "1", "file://" + origin.getAbsolutePath(), clone.getName());
+
+        Git git = git(clone);
+        git.deepen("origin", List.of(Git.Scope.ROOT));
+        assertAll(
+                () -> assertFalse(new File(clone, ".git/shallow").exists(), "Complete"),
+                () -> assertEquals(Version.initial(), git.version(), "Initial")
+        );
+    }
+
+    @Test
+    void testDeepenCompleteClone(@TempDir File dir) throws Exception {
+        File origin = new File(dir, "origin");
+        initializeOrigin(origin, 0, 3);
+
+        Git git = git(origin);
+        git.deepen("missing", List.of(Git.Scope.ROOT));
+        assertEquals(3, assertInstanceOf(Version.PreRelease.class, git.version()).distance(), "Distance");
+    }
+
+    /**
+     * Initializes a repository with the given number of commits before and after the one tagged v1.0.0.
+     */
+    private static void initializeOrigin(File dir, int before, int after) throws Exception {
+        try (org.eclipse.jgit.api.Git git = org.eclipse.jgit.api.Git.init()
+                .setDirectory(dir)
+                .setInitialBranch("main")
+                .call()) {
+            StoredConfig config = git.getRepository().getConfig();
+            config.setBoolean("commit", null, "gpgsign", false);
+            config.setBoolean("tag", null, "gpgsign", false);
+            config.unset("gpg", null, "format");
+            config.save();
+
+            for (int i = 0; i <= before + after; i++) {
+                git.commit()
+                        .setAuthor("junit", "junit@autosemver.github.com")
+                        .setCommitter("junit", "junit@autosemver.github.com")
+                        .setMessage("Commit " + i)
+                        .setAllowEmpty(true)
+                        .call();
+                if (i == before) {
+                    git.tag().setName("v1.0.0").setAnnotated(true).setMessage("v1.0.0").call();
+                }
+            }
+        }
+    }
+
+    @Test
+    void testDirtyFailsOnTimeout(@TempDir File dir) throws Exception {
+        File projectDir = new File(dir, "project");
+        try (var _ = GitDirTest.initialize(projectDir)) {
+            // a file system monitor that never answers stalls the git CLI refreshing the index
+            File monitor = new File(dir, "monitor.sh");
+            Files.writeString(monitor.toPath(), "#!/bin/sh\nsleep 30\n");
+            assertTrue(monitor.setExecutable(true));
+            run(projectDir, "git", "config", "core.fsmonitor", monitor.getAbsolutePath());
+            // changed content is left to the git CLI to judge
+            Files.writeString(new File(projectDir, "build.gradle").toPath(), "\n", StandardOpenOption.APPEND);
+
+            Git git = git(projectDir, Duration.ofSeconds(1));
+            GradleException e = assertThrows(GradleException.class, git::dirty);
+            assertTrue(e.getMessage().contains("autoSemver.timeout"), e.getMessage());
+        }
+    }
+
+    @Test
+    void testReleasedVersionsOfUntaggedScope(@TempDir File dir) throws Exception {
+        File projectDir = new File(dir, "project");
+        try (var _ = GitDirTest.initialize(projectDir)) {
+            Git git = git(projectDir);
+            List<Git.Scope> scopes = List.of(Git.Scope.ROOT, Git.Scope.of("api"));
+            assertAll(
+                    () -> assertEquals(Map.of(Git.Scope.ROOT, Optional.of(Version.release(1, 0, 0)),
+                            Git.Scope.of("api"), Optional.empty()), git.releasedVersions(scopes), "Released"),
+                    () -> assertEquals(Map.of(Git.Scope.ROOT, Version.release(1, 0, 0),
+                            Git.Scope.of("api"), Version.initial()), git.versions(scopes), "Versions")
+            );
+        }
+    }
+
+    private static void run(File dir, String... command) throws Exception {
+        Process process = new ProcessBuilder(command).directory(dir).inheritIO().start();
+        assertEquals(0, process.waitFor(), String.join(" ", command));
+    }
+
+    private static Git git(File projectDir) {
+        return git(projectDir, GitProcess.DEFAULT_TIMEOUT);
+    }
+
+    private static Git git(File projectDir, Duration timeout) {
+        Project project = ProjectBuilder.builder().withProjectDir(projectDir).build();
+        Services services = project.getObjects().newInstance(Services.class);
+        return new Git(projectDir, services.getExecOperations(), services.getProblems().getReporter(), timeout);
+    }
+
+    public abstract static class Services {
+
+        @Inject
+        public abstract ExecOperations getExecOperations();
+
+        @Inject
+        public abstract Problems getProblems();
+    }
+}
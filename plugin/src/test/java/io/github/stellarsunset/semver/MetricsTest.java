@@ -0,0 +1,50 @@
+package io.github.stellarsunset.semver;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void testDrain() {
+        Metrics.drain();
+        try (var _ = Metrics.span(Metrics.Stage.RESOLVE, "version")) {
+            try (var _ = Metrics.span(Metrics.Stage.WALK, "describe")) {
+                Metrics.count(Metrics.Counter.CACHE_MISSES);
+            }
+        }
+
+        Metrics.Snapshot snapshot = Metrics.drain();
+        assertAll(
+                () -> assertEquals(2, snapshot.events().size(), "Events"),
+                () -> assertEquals(Metrics.Stage.WALK, snapshot.events().getFirst().stage(), "Inner closes first"),
+                () -> assertTrue(snapshot.totals().get(Metrics.Stage.RESOLVE) >= snapshot.totals().get(Metrics.Stage.WALK), "Nested"),
+                () -> assertEquals(Long.valueOf(1), snapshot.counters().get(Metrics.Counter.CACHE_MISSES), "Misses"),
+                () -> assertTrue(Metrics.drain().isEmpty(), "Cleared")
+        );
+    }
+
+    @Test
+    void testWrite(@TempDir File dir) throws Exception {
+        Metrics.drain();
+        try (var _ = Metrics.span(Metrics.Stage.SPAWN, "describe --match \"v*\"")) {
+            Metrics.count(Metrics.Counter.PROCESSES);
+        }
+
+        Path report = dir.toPath().resolve("autoSemver/report.json");
+        Metrics.drain().write(report);
+
+        String json = Files.readString(report);
+        assertAll(
+                () -> assertTrue(json.contains("\"processes\": 1"), "Counter"),
+                () -> assertTrue(json.contains("\"spawn\": "), "Total"),
+                () -> assertTrue(json.contains("\"name\": \"describe --match \\\"v*\\\"\", \"cat\": \"spawn\", \"ph\": \"X\""), "Event")
+        );
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.stellarsunset.semver;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+
+import static io.github.stellarsunset.semver.Version.release;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReleaseIndexTest {
+
+    private static final List<String> TAGS = List.of(
+            "v1.10.0", "v0.1.0", "v1.2.0", "v1.2.0", "v2.0.0", "v1.9.3", "core/v5.0.0", "vnext", "latest");
+
+    @Test
+    void testFloorAndCeiling() {
+        ReleaseIndex index = ReleaseIndex.of(TAGS, "");
+        assertAll(
+                () -> assertEquals(5, index.size(), "Size"),
+                () -> assertEquals(Optional.of(release(2, 0, 0)), index.latest(), "Latest"),
+                () -> assertEquals(Optional.of(release(1, 9, 3)), index.floor(release(1, 9, 9)), "Floor"),
+                () -> assertEquals(Optional.of(release(1, 10, 0)), index.floor(release(1, 10, 0)), "Floor exact"),
+                () -> assertEquals(Optional.empty(), index.floor(release(0, 0, 9)), "Floor below all"),
+                () -> assertEquals(Optional.of(release(1, 2, 0)), index.ceiling(release(1, 0, 0)), "Ceiling"),
+                () -> assertEquals(Optional.of(release(1, 2, 0)), index.ceiling(release(1, 2, 0)), "Ceiling exact"),
+                () -> assertEquals(Optional.empty(), index.ceiling(release(2, 0, 1)), "Ceiling above all")
+        );
+    }
+
+    @Test
+    void testRange() {
+        ReleaseIndex index = ReleaseIndex.of(TAGS, "");
+        assertAll(
+                () -> assertEquals(List.of(release(1, 2, 0), release(1, 9, 3), release(1, 10, 0)),
+                        index.range(release(1, 0, 0), release(2, 0, 0)), "Range"),
+                () -> assertEquals(List.of(), index.range(release(2, 0, 0), release(1, 0, 0)), "Empty")
+        );
+    }
+
+    @Test
+    void testUnpackableReleases() {
+        // CalVer majors don't fit a packed component, the index then falls back to comparing releases
+        ReleaseIndex index = ReleaseIndex.of(List.of("v20261017.0.0", "v1.2.0", "v20260101.1.0", "v1.2.0", "v3.0.0"), "");
+        assertAll(
+                () -> assertEquals(4, index.size(), "Size"),
+                () -> assertEquals(Optional.of(release(20261017, 0, 0)), index.latest(), "Latest"),
+                () -> assertTrue(index.contains(release(20260101, 1, 0)), "Contains"),
+                () -> assertEquals(Optional.of(release(20260101, 1, 0)), index.floor(release(20261016, 0, 0)), "Floor"),
+                () -> assertEquals(Optional.of(release(20260101, 1, 0)), index.ceiling(release(3, 0, 1)), "Ceiling"),
+                () -> assertEquals(List.of(release(3, 0, 0), release(20260101, 1, 0)),
+                        index.range(release(2, 0, 0), release(20261017, 0, 0)), "Range")
+        );
+    }
+
+    @Test
+    void testUnpackableQuery() {
+        ReleaseIndex index = ReleaseIndex.of(TAGS, "");
+        assertAll(
+                () -> assertEquals(Optional.of(release(1, 10, 0)), index.floor(release(1, 3_000_000, 0)), "Floor"),
+                () -> assertEquals(Optional.of(release(2, 0, 0)), index.ceiling(release(1, 3_000_000, 0)), "Ceiling"),
+                () -> assertFalse(index.contains(release(1, 3_000_000, 0)), "Contains")
+        );
+    }
+
+    @Test
+    void testTagPrefix() {
+        ReleaseIndex index = ReleaseIndex.of(TAGS, "core/");
+        assertAll(
+                () -> assertEquals(Optional.of(release(5, 0, 0)), index.latest(), "Latest"),
+                () -> assertEquals("core/v5.0.0", index.tag(release(5, 0, 0)), "Tag")
+        );
+    }
+
+    @Test
+    void testReadPackedRefs(@TempDir File projectDir) throws Exception {
+        try (Git git = GitHelpers.initializeRepositorySafely(projectDir)) {
+            for (String tag : List.of("v0.1.0", "v0.2.0", "v1.0.0")) {
+                git.tag().setName(tag).setAnnotated(true).setMessage(tag).call();
+            }
+            git.packRefs().setAll(true).call();
+
+            ReleaseIndex index = ReleaseIndex.read(GitDir.find(projectDir).orElseThrow().dir(), "");
+            assertAll(
+                    () -> assertEquals(3, index.size(), "Size"),
+                    () -> assertTrue(index.contains(release(0, 2, 0)), "Contains"),
+                    () -> assertEquals(Optional.of(release(0, 2, 0)), index.floor(release(0, 9, 0)), "Floor")
+            );
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package io.github.stellarsunset.semver;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionCacheTest {
+
+    @Test
+    void testHitOnUnchangedRepository(@TempDir File projectDir, @TempDir File cacheDir) {
+        try (Git git = GitHelpers.initializeRepositorySafely(projectDir)) {
+            VersionCache cache = VersionCache.in(cacheDir);
+            Counting compute = new Counting(Version.initial());
+
+            assertAll(
+                    () -> assertEquals(Version.initial(), cache.get(projectDir, compute), "First"),
+                    () -> assertEquals(Version.initial(), cache.get(projectDir, compute), "Second"),
+                    () -> assertEquals(1, compute.calls.get(), "Computations")
+            );
+        }
+    }
+
+    @Test
+    void testMissAfterNewTag(@TempDir File projectDir, @TempDir File cacheDir) throws Exception {
+        try (Git git = GitHelpers.initializeRepositorySafely(projectDir)) {
+            VersionCache cache = VersionCache.in(cacheDir);
+            assertEquals(Version.initial(), cache.get(projectDir, new Counting(Version.initial())));
+
+            git.tag().setName("v1.0.0").setAnnotated(true).setMessage("Release").call();
+
+            Counting compute = new Counting(Version.release(1, 0, 0));
+            assertAll(
+                    () -> assertEquals(Version.release(1, 0, 0), cache.get(projectDir, compute), "Recomputed"),
+                    () -> assertEquals(1, compute.calls.get(), "Computations")
+            );
+        }
+    }
+
+    @Test
+    void testIncrementalAfterNewCommit(@TempDir File projectDir, @TempDir File cacheDir) throws Exception {
+        try (Git git = GitHelpers.initializeRepositorySafely(projectDir)) {
+            VersionCache cache = VersionCache.in(cacheDir);
+            String previousHead = git.getRepository().resolve("HEAD").name();
+            assertEquals(Version.initial(), cache.get(projectDir, new Counting(Version.initial())));
+
+            git.commit().setAllowEmpty(true).setSign(false).setMessage("Second").call();
+
+            Version next = Version.preRelease(Version.initial(), 1, "abcdefg");
+            Counting compute = new Counting(Version.initial());
+            List<String> since = new ArrayList<>();
+
+            Version version = cache.get(projectDir, compute, (commit, previous) -> {
+                since.add(commit + "@" + Version.Serde.gitPorcelain().serialize(previous));
+                return Optional.of(next);
+            });
+            assertAll(
+                    () -> assertEquals(next, version, "Incremental"),
+                    () -> assertEquals(List.of(previousHead + "@v0.0.1"), since, "Anchor"),
+                    () -> assertEquals(0, compute.calls.get(), "Computations")
+            );
+        }
+    }
+
+    @Test
+    void testNoIncrementalAfterNewTag(@TempDir File projectDir, @TempDir File cacheDir) throws Exception {
+        try (Git git = GitHelpers.initializeRepositorySafely(projectDir)) {
+            VersionCache cache = VersionCache.in(cacheDir);
+            assertEquals(Version.initial(), cache.get(projectDir, new Counting(Version.initial())));
+
+            git.tag().setName("v1.0.0").setAnnotated(true).setMessage("Release").call();
+
+            Counting compute = new Counting(Version.release(1, 0, 0));
+            Version version = cache.get(projectDir, compute, (_, _) -> fail("Tags changed, no incremental resolution"));
+            assertAll(
+                    () -> assertEquals(Version.release(1, 0, 0), version, "Recomputed"),
+                    () -> assertEquals(1, compute.calls.get(), "Computations")
+            );
+        }
+    }
+
+    @Test
+    void testSharedAcrossWorktrees(@TempDir File dir) throws Exception {
+        File main = new File(dir, "main");
+        File linked = new File(dir, "linked");
+        try (Git git = GitDirTest.initialize(main)) {
+            GitDirTest.run(main, "git", "worktree", "add", "--quiet", "--detach", linked.getAbsolutePath());
+            GitDir mainDir = GitDir.find(main).orElseThrow();
+            GitDir linkedDir = GitDir.find(linked).orElseThrow();
+            String head = git.getRepository().resolve("HEAD").name();
+
+            VersionCache cache = VersionCache.in(mainDir.commonDir());
+            Counting compute = new Counting(Version.release(1, 0, 0));
+            assertEquals(Version.release(1, 0, 0), cache.get(mainDir.dir(), compute), "Main");
+            assertEquals(Version.release(1, 0, 0), cache.get(linkedDir.dir(), compute), "Same HEAD");
+
+            try (Git other = Git.open(linked)) {
+                other.commit().setAllowEmpty(true).setSign(false).setMessage("Linked only").call();
+            }
+            List<String> since = new ArrayList<>();
+            Version next = Version.preRelease(Version.release(1, 0, 0), 1, "abcdefg");
+            Version version = cache.get(linkedDir.dir(), compute, (commit, _) -> {
+                since.add(commit);
+                return Optional.of(next);
+            });
+            assertAll(
+                    () -> assertEquals(next, version, "Incremental"),
+                    () -> assertEquals(head, since.getFirst(), "Anchor"),
+                    () -> assertEquals(1, compute.calls.get(), "Computations")
+            );
+        }
+    }
+
+    @Test
+    void testPrunesEntries(@TempDir File dir) throws Exception {
+        File main = new File(dir, "main");
+        File linked = new File(dir, "linked");
+        try (Git git = GitDirTest.initialize(main)) {
+            GitDirTest.run(main, "git", "worktree", "add", "--quiet", "--detach", linked.getAbsolutePath());
+            GitDir mainDir = GitDir.find(main).orElseThrow();
+            GitDir linkedDir = GitDir.find(linked).orElseThrow();
+
+            VersionCache cache = VersionCache.in(mainDir.commonDir());
+            Counting compute = new Counting(Version.release(1, 0, 0));
+            cache.get(mainDir.dir(), compute);
+
+            // copies of the main entry, as if written by worktrees long since checked out again
+            Path entry;
+            try (Stream<Path> entries = Files.list(cache.dir().toPath())) {
+                entry = entries.findFirst().orElseThrow();
+            }
+            for (int i = 0; i < VersionCache.MAX_ENTRIES + 4; i++) {
+                Path copy = entry.resolveSibling(String.format("version-copy%02d.properties", i));
+                Files.copy(entry, copy);
+                Files.setLastModifiedTime(copy, FileTime.fromMillis(System.currentTimeMillis() - 60_000L * (i + 1)));
+            }
+
+            cache.get(linkedDir.dir(), compute);
+            String linkedEntry;
+            try (Stream<Path> entries = Files.list(cache.dir().toPath())) {
+                linkedEntry = entries.max(Comparator.comparingLong(path -> path.toFile().lastModified()))
+                        .orElseThrow().getFileName().toString();
+            }
+            GitDirTest.run(main, "git", "worktree", "remove", linked.getAbsolutePath());
+
+            git.commit().setAllowEmpty(true).setSign(false).setMessage("Second Commit").call();
+            cache.get(mainDir.dir(), compute);
+
+            try (Stream<Path> entries = Files.list(cache.dir().toPath())) {
+                List<String> names = entries.map(path -> path.getFileName().toString()).toList();
+                assertAll(
+                        () -> assertTrue(names.size() <= VersionCache.MAX_ENTRIES, "Entries: " + names),
+                        () -> assertFalse(names.contains(linkedEntry), "Removed worktree pruned"),
+                        () -> assertTrue(names.contains(String.format("version-copy%02d.properties", 0)), "Newest kept"),
+                        () -> assertFalse(names.contains(String.format("version-copy%02d.properties", VersionCache.MAX_ENTRIES)), "Oldest pruned")
+                );
+            }
+        }
+    }
+
+    @Test
+    void testNotAGitDirectory(@TempDir File projectDir, @TempDir File cacheDir) {
+        VersionCache cache = VersionCache.in(cacheDir);
+        Counting compute = new Counting(Version.initial());
+
+        cache.get(projectDir, compute);
+        cache.get(projectDir, compute);
+        assertEquals(2, compute.calls.get(), "Nothing should be cached without a repository");
+    }
+
+    private record Counting(Version version, AtomicInteger calls) implements Supplier<Version> {
+
+        Counting(Version version) {
+            this(version, new AtomicInteger());
+        }
+
+        @Override
+        public Version get() {
+            calls.incrementAndGet();
+            return version;
+        }
+    }
+}
@@ -2,6 +2,12 @@ package io.github.stellarsunset.semver;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
 import static io.github.stellarsunset.semver.Version.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -45,6 +51,71 @@ class VersionTest {
         );
     }
 
+    @Test
+    void testDirtyRelease() {
+        Version dirty = dirty(release(2, 0, 0), "aabbccd");
+        assertAll(
+                () -> assertEquals(release(2, 0, 0), Version.releasePart(dirty), "Release part"),
+                () -> assertEquals("2.0.0-alpha0+aabbccd.dirty", JAVA.serialize(dirty), "Serialize Java"),
+                () -> assertEquals("v2.0.0-0-gaabbccd.dirty", GIT.serialize(dirty), "Serialize GitPorcelain"),
+                () -> assertEquals(dirty, JAVA.parse("2.0.0-alpha0+aabbccd.dirty"), "Deserialize Java"),
+                () -> assertEquals(dirty, GIT.parse("v2.0.0-0-gaabbccd.dirty"), "Deserialize GitPorcelain"),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> JAVA.parse("2.0.0-alpha0+aabbccd"), "Clean zero distance"),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> new PreRelease(release(2, 0, 0), 0, "aabbccd"), "Zero distance pre-release")
+        );
+    }
+
+    @Test
+    void testCompareTo() {
+        List<Version> sorted = List.of(
+                release(0, 9, 9),
+                preRelease(release(1, 0, 0), 1, "aaaaaaa"),
+                dirty(preRelease(release(1, 0, 0), 1, "aaaaaaa")),
+                preRelease(release(1, 0, 0), 1, "bbbbbbb"),
+                preRelease(release(1, 0, 0), 10, "aaaaaaa"),
+                release(1, 0, 0),
+                dirty(release(1, 0, 0)),
+                dirty(release(1, 0, 0), "aaaaaaa"),
+                release(1, 0, 1),
+                release(1, 2, 0),
+                release(10, 0, 0)
+        );
+
+        List<Version> shuffled = new ArrayList<>(sorted);
+        Collections.shuffle(shuffled, new Random(42));
+        shuffled.sort(null);
+
+        assertAll(
+                () -> assertEquals(sorted, shuffled, "Sorted"),
+                () -> assertEquals(0, release(1, 0, 0).compareTo(release(1, 0, 0)), "Equal")
+        );
+    }
+
+    @Test
+    void testCompareToNumericDistance() {
+        // unlike SemVer precedence of the strings, where the alphanumeric alpha10 sorts before alpha9
+        PreRelease nine = preRelease(release(1, 0, 0), 9, "aaaaaaa");
+        PreRelease ten = preRelease(release(1, 0, 0), 10, "aaaaaaa");
+        assertAll(
+                () -> assertTrue(nine.compareTo(ten) < 0, "9 before 10"),
+                () -> assertTrue(JAVA.serialize(ten).compareTo(JAVA.serialize(nine)) < 0, "Strings the other way")
+        );
+    }
+
+    @Test
+    void testPackedRelease() {
+        List<Release> releases = List.of(release(0, 0, 0), release(0, 0, 1), release(0, 1, 0), release(1, 0, 0),
+                release(Release.MAX_PACKED_COMPONENT, Release.MAX_PACKED_COMPONENT, Release.MAX_PACKED_COMPONENT));
+        assertAll(
+                () -> assertEquals(releases, releases.stream().map(r -> Release.unpack(r.pack())).toList(), "Round trip"),
+                () -> assertEquals(releases.stream().map(Release::pack).sorted().toList(),
+                        releases.stream().map(Release::pack).toList(), "Order preserving"),
+                () -> assertThrows(IllegalArgumentException.class, () -> release(0, 0, Release.MAX_PACKED_COMPONENT + 1).pack(), "Too large")
+        );
+    }
+
     @Test
     void testJavaSerde_Release() {
         assertAll(
@@ -124,4 +195,86 @@ class VersionTest {
                         GIT.parse("v1.0.0-105-gaabbccz.dirty"), "Deserialize v1.0.0-105-aabbccz.dirty")
         );
     }
+
+    @Test
+    void testGitSerde_IsRelease() {
+        Version.Serde core = Version.Serde.gitPorcelain("core/");
+        assertAll(
+                () -> assertTrue(GIT.isRelease("v1.2.3"), "v1.2.3"),
+                () -> assertFalse(GIT.isRelease("v1.2.3-4-gaabbccd"), "Pre-release"),
+                () -> assertFalse(GIT.isRelease("v1.2.3-rc1"), "Release candidate"),
+                () -> assertFalse(GIT.isRelease("v2"), "Partial"),
+                () -> assertFalse(GIT.isRelease("nightly-2024-01-01"), "Nightly"),
+                () -> assertFalse(GIT.isRelease("core/v1.2.3"), "Prefixed"),
+                () -> assertTrue(core.isRelease("core/v1.2.3"), "core/v1.2.3"),
+                () -> assertFalse(core.isRelease("v1.2.3"), "Unprefixed")
+        );
+    }
+
+    @Test
+    void testGitSerde_TagPrefix() {
+        Version.Serde core = Version.Serde.gitPorcelain("libs/core/");
+        assertAll(
+                () -> assertEquals("libs/core/v1.2.3",
+                        core.serialize(release(1, 2, 3)), "Serialize"),
+                () -> assertEquals(release(1, 2, 3),
+                        core.parse("libs/core/v1.2.3"), "Deserialize libs/core/v1.2.3"),
+                () -> assertEquals(preRelease(release(1, 2, 3), 4, "aabbccd"),
+                        core.parse("libs/core/v1.2.3-4-gaabbccd"), "Deserialize libs/core/v1.2.3-4-gaabbccd"),
+                () -> assertThrows(Version.Serde.IllegalVersionException.class,
+                        () -> core.parse("v1.2.3"), "Deserialize v1.2.3"),
+                () -> assertThrows(Version.Serde.IllegalVersionException.class,
+                        () -> GIT.parse("libs/core/v1.2.3"), "Unprefixed deserialize libs/core/v1.2.3")
+        );
+    }
+
+    @Test
+    void testScanningParserMatchesRegexParser() {
+        List<String> corpus = List.of(
+                "1.0.0", "0.0.1", "10.20.30", "01.0.0", "1.00.0", "1.0.00", "1.0", "1.0.0.", "1.0.0-",
+                "1.0.0-alpha1+aabbccz", "1.0.0-alpha0+aabbccz", "1.0.0-alpha01+aabbccz", "1.0.0-alpha1+aabbcc",
+                "1.0.0-alpha1+aabbccdd", "1.0.0-alpha1+AABBCCZ", "1.0.0-alpha1+aabbccz.dirty", "1.0.0-alpha1+aabbccz.dirt",
+                "v1.0.0", "v1.0.0-1-gaabbccz", "v1.0.0-1-gaabbccz.dirty", "v1.0.0-1-aabbccz", "v1.0.0-0-gaabbccz",
+                "v1.0.0\n", "v1.0.0\r\n", "v1.0.0\n\n", "v1.0.0\r", "v1.0.0\u2028", "v1.0.0-1-gaabbccz.dirty\n",
+                "v1.0.0-1-gaabbccz\r\n", "1.0.0\n", "v99999999999.0.0", "v2147483647.0.0", "v2147483648.0.0",
+                "v1.0.0-2147483648-gaabbccz", "", "v", "\n", " v1.0.0", "v1.0.0 ", "v1.0.0-dirty", "vv1.0.0"
+        );
+
+        Random random = new Random(42);
+        List<String> inputs = new ArrayList<>(corpus);
+        String alphabet = "v0123456789.-+galphadirtyz\n";
+        for (String seed : corpus) {
+            for (int i = 0; i < 50; i++) {
+                StringBuilder mutated = new StringBuilder(seed);
+                int position = seed.isEmpty() ? 0 : random.nextInt(seed.length());
+                switch (random.nextInt(3)) {
+                    case 0 -> mutated.insert(position, alphabet.charAt(random.nextInt(alphabet.length())));
+                    case 1 -> {
+                        if (!seed.isEmpty()) mutated.deleteCharAt(position);
+                    }
+                    default -> {
+                        if (!seed.isEmpty()) mutated.setCharAt(position, alphabet.charAt(random.nextInt(alphabet.length())));
+                    }
+                }
+                inputs.add(mutated.toString());
+            }
+        }
+
+        for (String input : inputs) {
+            assertAll(input,
+                    () -> assertEquals(outcome(() -> Version.Serde.Java.REGEX_PARSER.parse(input)),
+                            outcome(() -> JAVA.parse(input)), "Java"),
+                    () -> assertEquals(outcome(() -> Version.Serde.GitPorcelain.REGEX_PARSER.parse(input)),
+                            outcome(() -> GIT.parse(input)), "GitPorcelain")
+            );
+        }
+    }
+
+    private static Object outcome(Supplier<Version> parse) {
+        try {
+            return parse.get();
+        } catch (RuntimeException e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
 }